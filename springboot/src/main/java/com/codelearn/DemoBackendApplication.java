@@ -5,6 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * SpringBoot 应用主启动类
@@ -17,11 +18,13 @@ import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
  * @EnableJpaAuditing: 启用JPA审计功能（自动填充创建时间、更新时间等）
  * @EnableCaching: 启用缓存功能
  * @EnableConfigurationProperties: 启用配置属性绑定
+ * @EnableScheduling: 启用定时任务（统计对账等）
  */
 @SpringBootApplication
 @EnableJpaAuditing
 @EnableCaching
 @EnableConfigurationProperties
+@EnableScheduling
 public class DemoBackendApplication {
 
     public static void main(String[] args) {
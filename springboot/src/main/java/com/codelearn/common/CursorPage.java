@@ -0,0 +1,32 @@
+package com.codelearn.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果DTO
+ * 基于键集（keyset/seek）分页：不统计总数，不使用OFFSET，
+ * 下一页通过不透明的游标nextCursor继续读取
+ *
+ * @param <T> 数据的泛型类型
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /** 当前页数据 */
+    private List<T> content;
+
+    /** 每页大小 */
+    private int size;
+
+    /** 是否还有下一页 */
+    private boolean hasNext;
+
+    /** 下一页游标，没有下一页时为null */
+    private String nextCursor;
+}
@@ -0,0 +1,41 @@
+package com.codelearn.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入结果DTO
+ * 单行失败不会中断导入，失败原因按行记录在errors中（数量有上限）
+ */
+@Data
+public class UserImportResult {
+
+    /** 读取的总行数 */
+    private long total;
+
+    /** 成功导入的行数 */
+    private long imported;
+
+    /** 失败的行数 */
+    private long failed;
+
+    /** 耗时（毫秒） */
+    private long durationMs;
+
+    /** 失败明细 */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * 单行错误
+     */
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private int line;
+        private String username;
+        private String message;
+    }
+}
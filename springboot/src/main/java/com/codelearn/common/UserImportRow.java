@@ -0,0 +1,23 @@
+package com.codelearn.common;
+
+import lombok.Data;
+
+/**
+ * 批量导入的单行用户数据DTO
+ * JSON数组的每个元素或CSV的每一行对应一个实例，password为明文
+ */
+@Data
+public class UserImportRow {
+
+    /** 行号（JSON为数组下标+1，CSV为文件行号），用于错误定位 */
+    private int line;
+
+    private String username;
+
+    private String email;
+
+    private String password;
+
+    /** 角色：USER或ADMIN，为空时默认为USER */
+    private String role;
+}
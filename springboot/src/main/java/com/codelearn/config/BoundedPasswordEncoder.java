@@ -0,0 +1,175 @@
+package com.codelearn.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有界密码哈希编码器
+ * BCrypt计算放到专用的固定大小线程池中执行，调用方（Tomcat工作线程）提交后等待结果，
+ * 登录/注册突增时最多占用固定数量的CPU线程，不会耗尽请求线程池而拖慢其他接口。
+ * 等待队列已满时立即拒绝，等待超时时放弃，均抛出 {@link HashingRejectedException}
+ *
+ * 超时放弃只对还在队列中的任务有效：取消后该任务出队时直接跳过，不再计算。
+ * 已经开始的BCrypt计算无法中断，会继续占用线程直到算完（约一次哈希的耗时），结果被丢弃；
+ * 因此队列容量按 线程数 × 等待超时 / 单次哈希耗时 估算，超出这个数的请求本来也等不到结果，应直接拒绝
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    /** 实际执行哈希的编码器，批量导入等自带线程池的场景可直接使用 */
+    @Getter
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+    private final Duration waitTimeout;
+
+    private final Timer encodeQueueTimer;
+    private final Timer encodeHashTimer;
+    private final Timer matchesQueueTimer;
+    private final Timer matchesHashTimer;
+    private final Counter queueFullCounter;
+    private final Counter timeoutCounter;
+
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity,
+                                  Duration waitTimeout, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.waitTimeout = waitTimeout;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeQueueTimer = queueTimer(meterRegistry, "encode");
+        this.encodeHashTimer = hashTimer(meterRegistry, "encode");
+        this.matchesQueueTimer = queueTimer(meterRegistry, "matches");
+        this.matchesHashTimer = hashTimer(meterRegistry, "matches");
+        this.queueFullCounter = Counter.builder("auth.password.hash.rejected")
+                .description("因队列已满或等待超时被拒绝的哈希请求数")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("auth.password.hash.rejected")
+                .description("因队列已满或等待超时被拒绝的哈希请求数")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hash.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待执行的哈希请求数")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在执行的哈希请求数")
+                .register(meterRegistry);
+
+        log.info("密码哈希线程池已创建，BCrypt强度: {}, 线程数: {}, 队列容量: {}, 等待超时: {}",
+                strength, threads, queueCapacity, waitTimeout);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submitAndWait(() -> delegate.encode(rawPassword), encodeQueueTimer, encodeHashTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submitAndWait(() -> delegate.matches(rawPassword, encodedPassword), matchesQueueTimer, matchesHashTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submitAndWait(Callable<T> task, Timer queueTimer, Timer hashTimer) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queueFullCounter.increment();
+            throw new HashingRejectedException(false, "密码哈希队列已满");
+        }
+
+        try {
+            return future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 排队中的任务不会再执行；正在计算的任务无法中断，只能等它算完
+            future.cancel(false);
+            timeoutCounter.increment();
+            throw new HashingRejectedException(true, "等待密码哈希超时");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待密码哈希时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("密码哈希失败", cause);
+        }
+    }
+
+    private static Timer queueTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hash.queue")
+                .description("哈希请求在队列中的等待时间")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hash.time")
+                .description("BCrypt计算耗时")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 哈希请求被拒绝
+     * timeout为false表示队列已满（对应429），为true表示等待超时（对应503）
+     */
+    @Getter
+    public static class HashingRejectedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean timeout;
+
+        public HashingRejectedException(boolean timeout, String message) {
+            super(message);
+            this.timeout = timeout;
+        }
+    }
+}
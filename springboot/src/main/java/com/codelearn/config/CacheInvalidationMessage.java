@@ -0,0 +1,37 @@
+package com.codelearn.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 缓存失效通知消息
+ * 一条消息携带一批失效条目，字段名保持简短以减小消息体积：
+ * {"i":"实例ID","s":序号,"t":发布时间戳,"e":[["缓存名","key"],...]}
+ *
+ * 序号按发布实例递增，订阅方据此发现丢失的消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+
+    /** 发布实例ID */
+    @JsonProperty("i")
+    private String instanceId;
+
+    /** 发布实例内递增的消息序号 */
+    @JsonProperty("s")
+    private long sequence;
+
+    /** 发布时间（毫秒），用于统计失效延迟 */
+    @JsonProperty("t")
+    private long timestamp;
+
+    /** 失效条目：[缓存名, key]，key为*表示清空整个缓存 */
+    @JsonProperty("e")
+    private List<List<String>> entries;
+}
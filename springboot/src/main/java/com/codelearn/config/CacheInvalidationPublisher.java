@@ -0,0 +1,187 @@
+package com.codelearn.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存失效通知发布者
+ * 通过Redis发布/订阅通知其他实例清除各自的L1条目（及负缓存等本地结构）
+ *
+ * 失效条目先进入队列，由后台线程按固定间隔或达到批大小时合并成一条消息发布，
+ * 一次写操作产生的多个失效（ID、用户名、列表）只发一条消息；
+ * 每条消息带递增序号，订阅方发现序号不连续时清空本地缓存（包括负缓存等监听器维护的本地结构）。
+ * 熔断期间丢弃或发送失败的消息同样占用序号，Redis恢复后补发一条空消息，让其他实例一定能发现缺口
+ */
+@Slf4j
+public class CacheInvalidationPublisher {
+
+    public static final String CHANNEL = "cache:invalidation";
+    public static final String ALL_KEYS = "*";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String instanceId = UUID.randomUUID().toString();
+    private final int batchSize;
+
+    private final ConcurrentLinkedQueue<List<String>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingSize = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    /** 有消息未能发出，需要补发空消息暴露序号缺口 */
+    private final AtomicBoolean messagesLost = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter messagesPublished;
+    private final Counter entriesDropped;
+    private final Counter publishFailures;
+    private final DistributionSummary batchSizes;
+
+    public CacheInvalidationPublisher(StringRedisTemplate redisTemplate, RedisCircuitBreaker circuitBreaker,
+                                      int batchSize, Duration batchInterval, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.batchSize = batchSize;
+        this.messagesPublished = Counter.builder("cache.invalidation.published")
+                .description("发布的失效通知消息数")
+                .register(meterRegistry);
+        this.entriesDropped = Counter.builder("cache.invalidation.dropped")
+                .description("Redis熔断期间未能发布的失效条目数")
+                .register(meterRegistry);
+        this.publishFailures = Counter.builder("cache.invalidation.publish.failures")
+                .description("发布失败的消息数")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("cache.invalidation.batch.size")
+                .description("每条失效通知消息包含的条目数")
+                .register(meterRegistry);
+        flusher.scheduleWithFixedDelay(this::flush, batchInterval.toMillis(), batchInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void publishEvict(String cacheName, String key) {
+        enqueue(cacheName, key);
+    }
+
+    public void publishClear(String cacheName) {
+        enqueue(cacheName, ALL_KEYS);
+    }
+
+    /**
+     * 发布统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("instanceId", instanceId);
+        stats.put("sequence", sequence.get());
+        stats.put("pending", pendingSize.get());
+        stats.put("published", (long) messagesPublished.count());
+        stats.put("dropped", (long) entriesDropped.count());
+        stats.put("failures", (long) publishFailures.count());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();  // 停机前把剩余的失效通知发出去
+    }
+
+    private void enqueue(String cacheName, String key) {
+        pending.add(List.of(cacheName, key));
+        if (pendingSize.incrementAndGet() >= batchSize) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * 合并队列中的失效条目并发布；同一缓存已有清空操作时，该缓存的单个key不再重复发送
+     */
+    private synchronized void flush() {
+        while (pendingSize.get() > 0) {
+            Set<List<String>> batch = new LinkedHashSet<>();
+            List<String> entry;
+            while (batch.size() < batchSize && (entry = pending.poll()) != null) {
+                pendingSize.decrementAndGet();
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            publish(compact(batch));
+        }
+        // 有消息丢失且之后没有新消息发出时，补发空消息让其他实例发现序号缺口
+        if (messagesLost.get() && circuitBreaker.allowRequest() && messagesLost.compareAndSet(true, false)) {
+            publish(List.of());
+        }
+    }
+
+    private void publish(List<List<String>> entries) {
+        if (!circuitBreaker.allowRequest()) {
+            // 熔断期间不发布，但占用序号：Redis恢复后的下一条消息会在其他实例上形成序号缺口
+            sequence.incrementAndGet();
+            messagesLost.set(true);
+            entriesDropped.increment(entries.size());
+            return;
+        }
+        // 先占用序号再发送：发送失败时其他实例会在下一条消息发现序号缺口
+        CacheInvalidationMessage message = new CacheInvalidationMessage(
+                instanceId, sequence.incrementAndGet(), System.currentTimeMillis(), entries);
+        try {
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(message));
+            circuitBreaker.recordSuccess();
+            messagesLost.set(false);  // 这条消息本身就会暴露之前的缺口
+            messagesPublished.increment();
+            batchSizes.record(entries.size());
+        } catch (Exception e) {
+            circuitBreaker.recordFailure(e);
+            publishFailures.increment();
+            messagesLost.set(true);
+            // Redis不可用时其他实例的L1只能依靠过期时间或序号缺口检测兜底
+            log.warn("发布缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    private static List<List<String>> compact(Set<List<String>> batch) {
+        Set<String> clearedCaches = new LinkedHashSet<>();
+        for (List<String> entry : batch) {
+            if (ALL_KEYS.equals(entry.get(1))) {
+                clearedCaches.add(entry.get(0));
+            }
+        }
+        List<List<String>> entries = new ArrayList<>(batch.size());
+        for (List<String> entry : batch) {
+            if (ALL_KEYS.equals(entry.get(1)) || !clearedCaches.contains(entry.get(0))) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+}
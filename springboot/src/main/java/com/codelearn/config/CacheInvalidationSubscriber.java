@@ -0,0 +1,85 @@
+package com.codelearn.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 缓存失效通知订阅者
+ * 监听容器如果注册为Bean，会在上下文刷新时同步订阅，Redis不可用会导致应用启动失败。
+ * 这里由本类自行管理容器：应用就绪后在后台线程中订阅，失败则定期重试
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationSubscriber {
+
+    private static final long RETRY_INTERVAL_MS = 5000;
+
+    private final RedisConnectionFactory connectionFactory;
+    private final TwoLevelCacheManager cacheManager;
+
+    private volatile RedisMessageListenerContainer container;
+    private volatile boolean stopped;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::subscribeWithRetry, "cache-invalidation-subscriber");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        stopped = true;
+        if (container != null) {
+            container.destroy();
+        }
+    }
+
+    public boolean isSubscribed() {
+        return container != null && container.isListening();
+    }
+
+    private void subscribeWithRetry() {
+        while (!stopped) {
+            RedisMessageListenerContainer candidate = new RedisMessageListenerContainer();
+            candidate.setConnectionFactory(connectionFactory);
+            // 在订阅连接的线程上按顺序处理消息（默认每条消息一个新线程，会打乱顺序导致误报序号缺口）
+            candidate.setTaskExecutor(new SyncTaskExecutor());
+            candidate.addMessageListener(cacheManager, new ChannelTopic(CacheInvalidationPublisher.CHANNEL));
+            try {
+                candidate.afterPropertiesSet();
+                candidate.start();
+                container = candidate;
+                log.info("已订阅Redis缓存失效通知");
+                return;
+            } catch (Exception e) {
+                log.warn("订阅Redis缓存失效通知失败，{}ms后重试: {}", RETRY_INTERVAL_MS, e.getMessage());
+                destroyQuietly(candidate);
+            }
+            try {
+                Thread.sleep(RETRY_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void destroyQuietly(RedisMessageListenerContainer candidate) {
+        try {
+            candidate.destroy();
+        } catch (Exception ignored) {
+            // 订阅失败的容器直接丢弃
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.codelearn.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存区域配置
+ * 每个命名缓存（区域）可以单独配置Redis过期时间和本地缓存的容量、过期时间，
+ * 未配置的项使用 app.cache.redis.ttl / app.cache.local.* 的默认值
+ *
+ * <pre>
+ * app:
+ *   cache:
+ *     regions:
+ *       user-lists:
+ *         ttl: 5m
+ *         local-max-size: 10
+ *         local-ttl: 30s
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheRegionProperties {
+
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    public Region getRegion(String name) {
+        return regions.getOrDefault(name, Region.DEFAULTS);
+    }
+
+    @Data
+    public static class Region {
+
+        static final Region DEFAULTS = new Region();
+
+        /** Redis（L2）过期时间 */
+        private Duration ttl;
+
+        /** 本地（L1）缓存最大条目数 */
+        private Long localMaxSize;
+
+        /** 本地（L1）缓存过期时间 */
+        private Duration localTtl;
+    }
+}
@@ -0,0 +1,168 @@
+package com.codelearn.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存标签索引
+ * 记录 标签 -> 缓存条目（区域|key）的对应关系，按标签失效时只清除打了该标签的条目，
+ * 不必清空整个缓存。
+ *
+ * 索引保存两份：本实例写入的条目记在本地（覆盖Redis不可用时的L1），
+ * 所有实例写入的条目记在Redis集合 cache:tag:{标签} 中（覆盖其他实例写入的L2）。
+ * Redis集合的过期时间取所有区域中最长的TTL，保证不早于它索引的条目过期
+ */
+@Component
+@Slf4j
+public class CacheTagIndex {
+
+    private static final String KEY_PREFIX = "cache:tag:";
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 读取并删除标签集合放在一个脚本里原子执行：分开执行时，两条命令之间其他实例新打的标签
+     * 会被一起删掉却没有被失效，对应条目就再也无法按标签清除
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DRAIN_SCRIPT = RedisScript.of(
+            "local members = redis.call('SMEMBERS', KEYS[1])\n"
+                    + "redis.call('DEL', KEYS[1])\n"
+                    + "return members", List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final Duration tagTtl;
+    private final Cache<String, Set<String>> localTags;
+
+    public CacheTagIndex(StringRedisTemplate redisTemplate,
+                         RedisCircuitBreaker circuitBreaker,
+                         CacheRegionProperties regionProperties,
+                         @Value("${app.cache.redis.ttl:30m}") Duration defaultTtl,
+                         @Value("${app.cache.local.ttl:60s}") Duration defaultLocalTtl) {
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+
+        Duration maxTtl = defaultTtl;
+        Duration maxLocalTtl = defaultLocalTtl;
+        for (CacheRegionProperties.Region region : regionProperties.getRegions().values()) {
+            if (region.getTtl() != null && region.getTtl().compareTo(maxTtl) > 0) {
+                maxTtl = region.getTtl();
+            }
+            if (region.getLocalTtl() != null && region.getLocalTtl().compareTo(maxLocalTtl) > 0) {
+                maxLocalTtl = region.getLocalTtl();
+            }
+        }
+        this.tagTtl = maxTtl;
+        this.localTags = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(maxLocalTtl)  // 标签下持续有新条目写入时不过期
+                .build();
+    }
+
+    /**
+     * 给缓存条目打标签（应在写入缓存之前调用，避免写入后、打标签前的失效被漏掉）
+     *
+     * @return Redis中的标签是否写入成功；失败时调用方不应把条目写入L2，否则它无法按标签失效
+     */
+    public boolean tag(String region, Object key, Collection<String> tags) {
+        return tagAll(region, Map.of(key, tags));
+    }
+
+    /**
+     * 批量打标签：所有条目的标签用一次流水线写入Redis
+     *
+     * @return Redis中的标签是否写入成功
+     */
+    public boolean tagAll(String region, Map<?, ? extends Collection<String>> tagsByKey) {
+        Map<String, Collection<String>> members = new HashMap<>();
+        tagsByKey.forEach((key, tags) -> {
+            if (!tags.isEmpty()) {
+                members.put(region + SEPARATOR + key, tags);
+            }
+        });
+        if (members.isEmpty()) {
+            return true;
+        }
+        members.forEach((member, tags) -> {
+            for (String tag : tags) {
+                localTags.asMap().computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(member);
+            }
+        });
+        if (!circuitBreaker.allowRequest()) {
+            return true;  // 熔断期间L2写入本来就会被跳过
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                members.forEach((member, tags) -> {
+                    byte[] value = member.getBytes(StandardCharsets.UTF_8);
+                    for (String tag : tags) {
+                        byte[] tagKey = (KEY_PREFIX + tag).getBytes(StandardCharsets.UTF_8);
+                        connection.setCommands().sAdd(tagKey, value);
+                        connection.keyCommands().expire(tagKey, tagTtl.getSeconds());
+                    }
+                });
+                return null;
+            });
+            circuitBreaker.recordSuccess();
+            return true;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            log.warn("写入缓存标签失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 取出并删除标签下的所有条目，返回 区域 -> keys
+     */
+    public Map<String, Set<String>> drain(String tag) {
+        Set<String> members = new HashSet<>();
+        Set<String> local = localTags.asMap().remove(tag);
+        if (local != null) {
+            members.addAll(local);
+        }
+        if (circuitBreaker.allowRequest()) {
+            try {
+                String tagKey = KEY_PREFIX + tag;
+                List<?> remote = redisTemplate.execute(DRAIN_SCRIPT, List.of(tagKey));
+                if (remote != null) {
+                    remote.forEach(member -> members.add(member.toString()));
+                }
+                circuitBreaker.recordSuccess();
+            } catch (RuntimeException e) {
+                circuitBreaker.recordFailure(e);
+                log.warn("读取缓存标签失败，只按本地索引失效: {}", e.getMessage());
+            }
+        }
+
+        Map<String, Set<String>> byRegion = new HashMap<>();
+        for (String member : members) {
+            int separator = member.indexOf(SEPARATOR);
+            if (separator > 0) {
+                byRegion.computeIfAbsent(member.substring(0, separator), r -> new HashSet<>())
+                        .add(member.substring(separator + 1));
+            }
+        }
+        return byRegion;
+    }
+
+    public long localSize() {
+        return localTags.estimatedSize();
+    }
+}
@@ -0,0 +1,47 @@
+package com.codelearn.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * SQL监控数据源代理配置
+ * 用datasource-proxy包装应用使用的数据源（名为dataSource的Bean，启用读写分离时包装在路由数据源之外），
+ * 每条语句执行后交给 {@link SqlStatementMonitor}；app.sql.monitor.enabled=false 时不包装
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    /**
+     * 静态方法：BeanPostProcessor需要在其他Bean之前创建
+     */
+    @Bean
+    public static BeanPostProcessor sqlMonitorDataSourcePostProcessor(Environment environment,
+                                                                      ObjectProvider<SqlStatementMonitor> monitor) {
+        boolean enabled = environment.getProperty("app.sql.monitor.enabled", Boolean.class, true);
+        boolean countRows = environment.getProperty("app.sql.monitor.count-rows", Boolean.class, true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !DATA_SOURCE_BEAN.equals(beanName) || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                SqlStatementMonitor listener = monitor.getObject();
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(DATA_SOURCE_BEAN, dataSource)
+                        .listener(listener)
+                        .methodListener(listener);
+                if (countRows) {
+                    builder.proxyResultSet();  // 代理结果集以统计读取的行数
+                }
+                return builder.build();
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.codelearn.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置（app.datasource.routing.enabled=true 时生效）
+ * 主库仍按 spring.datasource / spring.datasource.hikari 配置，从库按 app.datasource.replicas 配置；
+ * 未启用时使用Spring Boot自动配置的单一数据源
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    /**
+     * 主库连接池
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * 应用使用的数据源：延迟获取连接的代理 + 读写路由
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                 DataSourceRoutingProperties routingProperties) {
+        List<DataSource> replicas = new ArrayList<>();
+        List<DataSourceRoutingProperties.Replica> replicaConfigs = routingProperties.getReplicas();
+        for (int i = 0; i < replicaConfigs.size(); i++) {
+            replicas.add(replicaDataSource(replicaConfigs.get(i), properties, "replica-" + (i + 1)));
+        }
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicas,
+                routingProperties.getRouting().getReadYourWritesWindow()));
+    }
+
+    private static HikariDataSource replicaDataSource(DataSourceRoutingProperties.Replica replica,
+                                                      DataSourceProperties properties, String poolName) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(replica.getDriverClassName() != null
+                        ? replica.getDriverClassName() : properties.determineDriverClassName())
+                .url(replica.getUrl())
+                .username(replica.getUsername())
+                .password(replica.getPassword())
+                .build();
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);  // 从库连接默认只读，误路由的写操作直接失败
+        return dataSource;
+    }
+}
@@ -0,0 +1,61 @@
+package com.codelearn.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置
+ * 启用后只读事务路由到从库，其余（写事务、无事务的访问）使用 spring.datasource 配置的主库
+ *
+ * <pre>
+ * app:
+ *   datasource:
+ *     routing:
+ *       enabled: true
+ *       read-your-writes-window: 2s
+ *     replicas:
+ *       - url: jdbc:h2:mem:testdb;MODE=MySQL;DATABASE_TO_LOWER=TRUE
+ *         username: sa
+ *         password: password
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.datasource")
+public class DataSourceRoutingProperties {
+
+    private Routing routing = new Routing();
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Routing {
+
+        /** 是否启用读写分离 */
+        private boolean enabled = false;
+
+        /** 同一客户端写入后的这段时间内，只读事务仍走主库（读己之写） */
+        private Duration readYourWritesWindow = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /** 未配置时使用主库的驱动 */
+        private String driverClassName;
+
+        /** 连接池最大连接数 */
+        private int maximumPoolSize = 10;
+    }
+}
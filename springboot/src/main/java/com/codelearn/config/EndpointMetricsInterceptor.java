@@ -0,0 +1,153 @@
+package com.codelearn.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按处理方法统计接口耗时和内存分配
+ * 每个控制器方法（如 UserController.getUserById）一组指标：
+ * - endpoint.latency：处理耗时，带P50/P95/P99
+ * - endpoint.allocation：请求线程在处理期间分配的字节数（ThreadMXBean按线程统计，不含其他线程的分配）
+ *
+ * 指标同时注册到Micrometer（/actuator/metrics）并由 /api/system/admin/metrics 汇总展示。
+ * 每个请求只读取两次纳秒时钟和线程分配计数器，开销在1微秒以内；
+ * 请求结束时已不在开始时的线程上（异步处理）或JVM不支持线程分配统计时只记录耗时
+ */
+@Component
+@Slf4j
+public class EndpointMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String ATTRIBUTE = EndpointMetricsInterceptor.class.getName();
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final boolean allocationSupported;
+
+    private final Map<Method, EndpointMeters> endpoints = new ConcurrentHashMap<>();
+
+    public EndpointMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.threadMXBean = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                ? bean : null;
+        boolean supported = false;
+        if (threadMXBean != null && threadMXBean.isThreadAllocatedMemorySupported()) {
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+            supported = true;
+        }
+        this.allocationSupported = supported;
+        if (!allocationSupported) {
+            log.info("当前JVM不支持按线程统计内存分配，接口指标只记录耗时");
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步处理的再次分派沿用首次分派的开始时间
+        if (handler instanceof HandlerMethod && request.getAttribute(ATTRIBUTE) == null) {
+            request.setAttribute(ATTRIBUTE, new Sample(System.nanoTime(), allocatedBytes(), Thread.currentThread()));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(handler instanceof HandlerMethod handlerMethod)
+                || !(request.getAttribute(ATTRIBUTE) instanceof Sample sample)) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - sample.startNanos();
+        EndpointMeters meters = endpoints.computeIfAbsent(handlerMethod.getMethod(), this::createMeters);
+        meters.latency().record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (sample.startAllocated() >= 0 && sample.thread() == Thread.currentThread()) {
+            long allocated = allocatedBytes();
+            if (allocated >= sample.startAllocated()) {
+                meters.allocation().record(allocated - sample.startAllocated());
+            }
+        }
+    }
+
+    /**
+     * 各接口的耗时和分配统计，按处理方法名排序
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        for (EndpointMeters meters : endpoints.values()) {
+            HistogramSnapshot latency = meters.latency().takeSnapshot();
+            Map<String, Object> latencyStats = new HashMap<>();
+            latencyStats.put("meanMs", latency.mean(TimeUnit.MILLISECONDS));
+            latencyStats.put("maxMs", latency.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : latency.percentileValues()) {
+                latencyStats.put(percentileKey(percentile) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+            }
+
+            HistogramSnapshot allocation = meters.allocation().takeSnapshot();
+            Map<String, Object> allocationStats = new HashMap<>();
+            allocationStats.put("count", allocation.count());
+            allocationStats.put("meanBytes", Math.round(allocation.mean()));
+            allocationStats.put("maxBytes", Math.round(allocation.max()));
+            allocationStats.put("totalBytes", Math.round(allocation.total()));
+            for (ValueAtPercentile percentile : allocation.percentileValues()) {
+                allocationStats.put(percentileKey(percentile) + "Bytes", Math.round(percentile.value()));
+            }
+
+            Map<String, Object> endpoint = new HashMap<>();
+            endpoint.put("count", latency.count());
+            endpoint.put("latency", latencyStats);
+            endpoint.put("allocation", allocationStats);
+            stats.put(meters.name(), endpoint);
+        }
+        return stats;
+    }
+
+    private EndpointMeters createMeters(Method method) {
+        String name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        Timer latency = Timer.builder("endpoint.latency")
+                .tag("handler", name)
+                .description("接口处理耗时")
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+        DistributionSummary allocation = DistributionSummary.builder("endpoint.allocation")
+                .tag("handler", name)
+                .baseUnit("bytes")
+                .description("接口处理期间请求线程分配的内存")
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+        return new EndpointMeters(name, latency, allocation);
+    }
+
+    /**
+     * 当前线程累计分配的字节数，不支持时返回-1（虚拟线程上同样返回-1）
+     */
+    private long allocatedBytes() {
+        return allocationSupported ? threadMXBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static String percentileKey(ValueAtPercentile percentile) {
+        return "p" + Math.round(percentile.percentile() * 100);
+    }
+
+    private record Sample(long startNanos, long startAllocated, Thread thread) {
+    }
+
+    private record EndpointMeters(String name, Timer latency, DistributionSummary allocation) {
+    }
+}
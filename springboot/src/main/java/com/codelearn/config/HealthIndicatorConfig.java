@@ -0,0 +1,39 @@
+package com.codelearn.config;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Actuator健康指示器
+ * 按Spring Boot默认指示器的Bean名称注册，替换掉每次请求都实时检查的db、redis、diskSpace指示器，
+ * /actuator/health 同样读取 {@link HealthMonitor} 的后台探测快照
+ */
+@Configuration
+public class HealthIndicatorConfig {
+
+    @Bean
+    public HealthIndicator dbHealthContributor(HealthMonitor healthMonitor) {
+        return () -> toHealth(healthMonitor.getSnapshot(HealthMonitor.DATABASE));
+    }
+
+    @Bean
+    public HealthIndicator redisHealthContributor(HealthMonitor healthMonitor) {
+        return () -> toHealth(healthMonitor.getSnapshot(HealthMonitor.REDIS));
+    }
+
+    @Bean
+    public HealthIndicator diskSpaceHealthIndicator(HealthMonitor healthMonitor) {
+        return () -> toHealth(healthMonitor.getSnapshot(HealthMonitor.DISK_SPACE));
+    }
+
+    private static Health toHealth(HealthMonitor.Snapshot snapshot) {
+        Health.Builder builder = switch (snapshot.status()) {
+            case HealthMonitor.UP -> Health.up();
+            case HealthMonitor.UNKNOWN -> Health.unknown();
+            default -> Health.down();
+        };
+        return builder.withDetails(snapshot.toMap()).build();
+    }
+}
@@ -0,0 +1,284 @@
+package com.codelearn.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 后台健康探测
+ * 数据库、Redis、磁盘空间各自按配置的间隔在后台探测，健康检查接口只读取最近一次的探测结果（快照），
+ * 负载均衡和K8s探针高频访问时不再每次都获取数据库连接、PING Redis或读取磁盘信息。
+ *
+ * 每个组件有独立的探测线程，单次探测超时即记为DOWN；超时的探测仍在执行时跳过后续探测，
+ * 不会堆积线程，也不会拖慢其他组件的探测和接口响应
+ */
+@Component
+@Slf4j
+public class HealthMonitor {
+
+    public static final String DATABASE = "database";
+    public static final String REDIS = "redis";
+    public static final String DISK_SPACE = "diskSpace";
+
+    public static final String UP = "UP";
+    public static final String DOWN = "DOWN";
+    public static final String LOW = "LOW";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private final DataSource dataSource;
+    private final RedisConnectionFactory redisConnectionFactory;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final HealthProbeProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ComponentProbe> probes = new LinkedHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "health-probe-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HealthMonitor(DataSource dataSource, RedisConnectionFactory redisConnectionFactory,
+                         RedisCircuitBreaker redisCircuitBreaker, HealthProbeProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        register(DATABASE, properties.getDatabase(), this::checkDatabase);
+        register(REDIS, properties.getRedis(), this::checkRedis);
+        register(DISK_SPACE, properties.getDiskSpace(), this::checkDiskSpace);
+        probes.values().forEach(ComponentProbe::schedule);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        probes.values().forEach(probe -> probe.worker.shutdownNow());
+    }
+
+    /**
+     * 组件最近一次的探测结果，尚未完成首次探测时状态为UNKNOWN
+     */
+    public Snapshot getSnapshot(String component) {
+        ComponentProbe probe = probes.get(component);
+        return probe != null ? probe.snapshot : Snapshot.UNKNOWN_SNAPSHOT;
+    }
+
+    /**
+     * 整体状态：由数据库决定，Redis不可用时缓存直接访问数据库，不影响整体可用
+     */
+    public String getOverallStatus() {
+        String database = getSnapshot(DATABASE).status();
+        return UNKNOWN.equals(database) || UP.equals(database) ? UP : DOWN;
+    }
+
+    /**
+     * 所有组件的快照，附带快照年龄
+     */
+    public Map<String, Object> getComponents() {
+        Map<String, Object> components = new LinkedHashMap<>();
+        probes.forEach((name, probe) -> components.put(name, probe.snapshot.toMap()));
+        return components;
+    }
+
+    private void register(String name, HealthProbeProperties.Probe config, Supplier<Result> check) {
+        ComponentProbe probe = new ComponentProbe(name, config, check);
+        probes.put(name, probe);
+        Gauge.builder("system.health.status", probe, p -> UP.equals(p.snapshot.status()) ? 1 : 0)
+                .tag("component", name)
+                .description("组件最近一次探测是否正常（1正常，0异常）")
+                .register(meterRegistry);
+    }
+
+    private Result checkDatabase() {
+        int timeoutSeconds = (int) Math.max(1, properties.getDatabase().getTimeout().toSeconds());
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(timeoutSeconds) ? Result.up(Map.of()) : new Result(DOWN, Map.of());
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 熔断打开时不再连接Redis，由熔断器自己的后台探测负责恢复
+     */
+    private Result checkRedis() {
+        if (redisCircuitBreaker.getState() != RedisCircuitBreaker.State.CLOSED) {
+            return new Result(DOWN, Map.of("message", "Redis熔断中，缓存直接访问数据库"));
+        }
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            String pong = connection.ping();
+            redisCircuitBreaker.recordSuccess();
+            return Result.up(Map.of("ping", Objects.toString(pong, "")));
+        } catch (RuntimeException e) {
+            redisCircuitBreaker.recordFailure(e);
+            throw e;
+        }
+    }
+
+    private Result checkDiskSpace() {
+        File file = new File(".");
+        long freeSpace = file.getFreeSpace();
+        long totalSpace = file.getTotalSpace();
+        String status = freeSpace > properties.getDiskSpaceThreshold().toBytes() ? UP : LOW;
+        return new Result(status, Map.of("free", freeSpace, "total", totalSpace));
+    }
+
+    /**
+     * 单次探测的结果
+     */
+    private record Result(String status, Map<String, Object> details) {
+
+        static Result up(Map<String, Object> details) {
+            return new Result(UP, details);
+        }
+    }
+
+    /**
+     * 组件的探测快照
+     *
+     * @param checkedAt 探测完成（或判定超时）的时间，尚未探测时为null
+     * @param latencyMs 探测耗时，超时时为超时时间
+     */
+    public record Snapshot(String status, Map<String, Object> details, Instant checkedAt, long latencyMs,
+                           String error) {
+
+        static final Snapshot UNKNOWN_SNAPSHOT = new Snapshot(UNKNOWN, Map.of(), null, 0, null);
+
+        /**
+         * 快照年龄（毫秒），尚未探测时为-1
+         */
+        public long ageMs() {
+            return checkedAt != null ? Duration.between(checkedAt, Instant.now()).toMillis() : -1;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>(details);
+            map.put("status", status);
+            map.put("ageMs", ageMs());
+            map.put("latencyMs", latencyMs);
+            if (checkedAt != null) {
+                map.put("checkedAt", checkedAt.toString());
+            }
+            if (error != null) {
+                map.put("error", error);
+            }
+            return Collections.unmodifiableMap(map);
+        }
+    }
+
+    private final class ComponentProbe {
+
+        private final String name;
+        private final HealthProbeProperties.Probe config;
+        private final Supplier<Result> check;
+        private final ExecutorService worker;
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private volatile Snapshot snapshot = Snapshot.UNKNOWN_SNAPSHOT;
+
+        ComponentProbe(String name, HealthProbeProperties.Probe config, Supplier<Result> check) {
+            this.name = name;
+            this.config = config;
+            this.check = check;
+            this.worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "health-probe-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void schedule() {
+            scheduler.scheduleWithFixedDelay(this::trigger, 0, config.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * 在探测线程中执行检查，调度线程不等待结果
+         */
+        private void trigger() {
+            if (!running.compareAndSet(false, true)) {
+                return;  // 上一次探测超时后仍未结束，已记为DOWN，等它结束后再探测
+            }
+            long start = System.nanoTime();
+            CompletableFuture<Result> task;
+            try {
+                task = CompletableFuture.supplyAsync(check, worker);
+            } catch (RuntimeException e) {
+                running.set(false);  // 应用关闭时线程池已停止
+                return;
+            }
+            task.whenComplete((result, error) -> running.set(false));
+            // 超时只作用于副本，不影响running标记：检查真正结束前不会再次提交
+            task.copy()
+                    .orTimeout(config.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((result, error) -> record(result, error, System.nanoTime() - start));
+        }
+
+        private void record(Result result, Throwable error, long elapsedNanos) {
+            Snapshot previous = snapshot;
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            String outcome;
+            Snapshot next;
+            if (error == null) {
+                outcome = result.status();
+                next = new Snapshot(result.status(), result.details(), Instant.now(), latencyMs, null);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                boolean timedOut = cause instanceof TimeoutException;
+                outcome = timedOut ? "TIMEOUT" : DOWN;
+                String message = timedOut ? "探测超时（" + config.getTimeout().toMillis() + "ms）" : cause.getMessage();
+                next = new Snapshot(DOWN, Map.of(), Instant.now(), latencyMs, message);
+            }
+            snapshot = next;
+
+            Timer.builder("system.health.probe")
+                    .tag("component", name)
+                    .tag("outcome", outcome)
+                    .description("后台健康探测耗时")
+                    .register(meterRegistry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+            if (!previous.status().equals(next.status())) {
+                if (UP.equals(next.status())) {
+                    log.info("组件 {} 健康状态: {} -> {}", name, previous.status(), next.status());
+                } else {
+                    log.warn("组件 {} 健康状态: {} -> {}，原因: {}", name, previous.status(), next.status(), next.error());
+                }
+            }
+        }
+    }
+}
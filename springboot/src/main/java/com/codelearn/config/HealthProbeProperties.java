@@ -0,0 +1,41 @@
+package com.codelearn.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 后台健康探测配置
+ * 每个组件按自己的间隔探测，单次探测超过超时时间即记为DOWN
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.health")
+public class HealthProbeProperties {
+
+    private Probe database = new Probe(Duration.ofSeconds(5), Duration.ofSeconds(2));
+
+    private Probe redis = new Probe(Duration.ofSeconds(5), Duration.ofSeconds(2));
+
+    private Probe diskSpace = new Probe(Duration.ofSeconds(30), Duration.ofSeconds(2));
+
+    /** 剩余磁盘空间低于该值时状态为LOW */
+    private DataSize diskSpaceThreshold = DataSize.ofMegabytes(100);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Probe {
+
+        /** 探测间隔；上一次探测超时仍未结束时跳过本次 */
+        private Duration interval;
+
+        /** 单次探测的超时时间 */
+        private Duration timeout;
+    }
+}
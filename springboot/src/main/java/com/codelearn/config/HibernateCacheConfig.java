@@ -0,0 +1,80 @@
+package com.codelearn.config;
+
+import com.codelearn.entity.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate二级缓存配置
+ * 使用Caffeine的JCache实现作为Hibernate的区域工厂，所有区域在这里预先创建并限制容量，
+ * 未预先创建的区域启动时报错（missing_cache_strategy: fail），不会出现无界的区域
+ *
+ * 区域：
+ * - User实体：按ID缓存实体数据
+ * - 查询结果：可缓存查询（findByUsername等）的结果ID列表
+ * - 更新时间戳：记录每张表最后修改时间，用于判断查询结果是否失效，不能按容量或时间淘汰
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    @Value("${app.jpa.cache.entity.max-size:10000}")
+    private long entityMaxSize;
+
+    @Value("${app.jpa.cache.entity.ttl:10m}")
+    private Duration entityTtl;
+
+    @Value("${app.jpa.cache.query.max-size:1000}")
+    private long queryMaxSize;
+
+    @Value("${app.jpa.cache.query.ttl:5m}")
+    private Duration queryTtl;
+
+    /**
+     * Hibernate专用的JCache缓存管理器（与应用的Spring CacheManager无关）
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        createRegion(cacheManager, User.CACHE_REGION, entityMaxSize, entityTtl);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queryMaxSize, queryTtl);
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, null, null);
+        return cacheManager;
+    }
+
+    /**
+     * 让Hibernate使用上面创建的缓存管理器
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, Long maxSize, Duration ttl) {
+        if (cacheManager.getCache(name) != null) {
+            return;  // 同一类加载器内重复创建上下文（如测试）时复用已有区域
+        }
+        CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+        config.setStoreByValue(false);  // Hibernate缓存的是已拆解的实体数据，不需要再复制
+        config.setStatisticsEnabled(true);
+        if (maxSize != null) {
+            config.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        if (ttl != null) {
+            config.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        cacheManager.createCache(name, config);
+    }
+}
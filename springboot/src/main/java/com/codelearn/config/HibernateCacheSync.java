@@ -0,0 +1,140 @@
+package com.codelearn.config;
+
+import com.codelearn.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hibernate二级缓存的跨实例同步
+ * 二级缓存在每个实例的进程内，本实例的写操作由Hibernate自己维护缓存，
+ * 其他实例需要通过缓存失效通知清除对应的实体和查询结果：
+ * - 更新、删除User：通知清除该实体，并清空查询结果区域
+ * - 新增User：只影响查询结果，通知清空查询结果区域
+ * 通知在事务提交后发出，与Hibernate本地更新缓存的时机一致
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HibernateCacheSync implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private static final String QUERY_REGION = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final TwoLevelCacheManager cacheManager;
+
+    @PostConstruct
+    public void register() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+
+        cacheManager.addInvalidationListener(User.CACHE_REGION, this::onRemoteEntityInvalidation);
+        cacheManager.addInvalidationListener(QUERY_REGION, key -> cache().evictDefaultQueryRegion());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return User.class.equals(persister.getMappedClass());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        invalidationPublisher.publishClear(QUERY_REGION);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        invalidationPublisher.publishEvict(User.CACHE_REGION, String.valueOf(event.getId()));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        invalidationPublisher.publishEvict(User.CACHE_REGION, String.valueOf(event.getId()));
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    /**
+     * 二级缓存统计：整体命中情况、User实体区域和查询结果区域
+     */
+    public Map<String, Object> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        stats.put("secondLevelHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelPuts", statistics.getSecondLevelCachePutCount());
+        stats.put("queryHits", statistics.getQueryCacheHitCount());
+        stats.put("queryMisses", statistics.getQueryCacheMissCount());
+        stats.put("queryPuts", statistics.getQueryCachePutCount());
+        stats.put("preparedStatements", statistics.getPrepareStatementCount());
+        stats.put(User.CACHE_REGION, regionStats(statistics.getDomainDataRegionStatistics(User.CACHE_REGION)));
+        stats.put(QUERY_REGION, regionStats(statistics.getQueryRegionStatistics(QUERY_REGION)));
+        return stats;
+    }
+
+    private void onRemoteEntityInvalidation(String key) {
+        if (CacheInvalidationPublisher.ALL_KEYS.equals(key)) {
+            cache().evictEntityData(User.class);
+        } else {
+            try {
+                cache().evictEntityData(User.class, Long.valueOf(key));
+            } catch (NumberFormatException e) {
+                log.warn("无法识别的User缓存失效key: {}", key);
+                cache().evictEntityData(User.class);
+            }
+        }
+        cache().evictDefaultQueryRegion();
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache();
+    }
+
+    private static Map<String, Object> regionStats(CacheRegionStatistics region) {
+        Map<String, Object> stats = new HashMap<>();
+        if (region != null) {
+            stats.put("hits", region.getHitCount());
+            stats.put("misses", region.getMissCount());
+            stats.put("puts", region.getPutCount());
+            if (region.getElementCountInMemory() >= 0) {  // JCache区域不支持统计条目数时为负数
+                stats.put("size", region.getElementCountInMemory());
+            }
+        }
+        return stats;
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
@@ -17,9 +18,13 @@ import java.io.IOException;
  * 处理未认证的访问
  */
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
     
+    /** 使用Spring配置好的ObjectMapper，ResponseResult中的LocalDateTime需要Java时间模块 */
+    private final ObjectMapper objectMapper;
+    
     @Override
     public void commence(HttpServletRequest request, HttpServletResponse response,
                         AuthenticationException authException) throws IOException, ServletException {
@@ -31,7 +36,6 @@ public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
         
         ResponseResult<Object> result = ResponseResult.unauthorized("未授权访问，请先登录");
         
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.writeValue(response.getOutputStream(), result);
+        objectMapper.writeValue(response.getOutputStream(), result);
     }
 } 
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.codelearn.config;
 
+import com.codelearn.service.TokenVersionService;
 import com.codelearn.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -28,6 +31,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtils jwtUtils;
     private final UserDetailsServiceImpl userDetailsService;
+    private final TokenVersionService tokenVersionService;
+    
+    /** 无状态认证模式：直接根据JWT声明构建用户主体，不再每个请求查询数据库 */
+    @Value("${app.jwt.stateless:false}")
+    private boolean stateless;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
@@ -35,10 +43,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
             
-            if (StringUtils.hasText(jwt) && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUsernameFromJwtToken(jwt);
+            // 只解析一次token：验证签名的同时取出声明
+            Claims claims = StringUtils.hasText(jwt) ? jwtUtils.verifyJwtToken(jwt) : null;
+            if (claims != null) {
+                String username = claims.getSubject();
                 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = loadUserDetails(claims);
+                if (userDetails == null) {
+                    log.debug("token版本已失效: '{}'", username);
+                    filterChain.doFilter(request, response);
+                    return;
+                }
                 
                 UsernamePasswordAuthenticationToken authentication = 
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -55,6 +70,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * 获取用户主体
+     * 无状态模式且token携带完整声明时，校验token版本号后直接由声明构建；
+     * 否则（包括旧token）回退到从数据库加载
+     *
+     * @return 用户主体，token版本号已失效时返回null
+     */
+    private UserDetails loadUserDetails(Claims claims) {
+        if (stateless && claims.get(JwtUtils.CLAIM_USER_ID) != null) {
+            Long userId = claims.get(JwtUtils.CLAIM_USER_ID, Long.class);
+            Integer tokenVersion = claims.get(JwtUtils.CLAIM_TOKEN_VERSION, Integer.class);
+            if (!tokenVersionService.isCurrent(userId, tokenVersion)) {
+                return null;
+            }
+            return UserDetailsServiceImpl.UserPrincipal.create(
+                userId,
+                claims.getSubject(),
+                claims.get(JwtUtils.CLAIM_EMAIL, String.class),
+                claims.get(JwtUtils.CLAIM_ROLE, String.class),
+                tokenVersion
+            );
+        }
+        return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+    
     /**
      * 从请求中提取JWT token
      */
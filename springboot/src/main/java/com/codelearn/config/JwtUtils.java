@@ -1,7 +1,12 @@
 package com.codelearn.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.codelearn.service.UserDetailsServiceImpl;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -9,7 +14,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT工具类
@@ -19,33 +29,84 @@ import java.util.Date;
 @Slf4j
 public class JwtUtils {
     
+    /** 自定义声明：用户ID、邮箱、角色、token版本号 */
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+    
     @Value("${app.jwt.secret:mySecretKey}")
     private String jwtSecret;
     
     @Value("${app.jwt.expiration:86400000}")
     private long jwtExpirationMs;
     
+    @Value("${app.jwt.cache.max-size:10000}")
+    private long verifiedTokenCacheMaxSize;
+    
+    /** 签名密钥和解析器只在启动时构建一次 */
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+    
+    /** 已验证token缓存：key为token的SHA-256摘要，条目在token的exp时刻过期 */
+    private Cache<String, Claims> verifiedTokens;
+    
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long ttlMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(ttlMs, 0));
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+    
     /**
-     * 生成JWT密钥
+     * 获取JWT密钥
      */
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
     
     /**
      * 根据认证信息生成JWT token
+     * 写入用户ID、角色和token版本号，无状态认证模式下可直接据此构建用户主体
      */
     public String generateJwtToken(Authentication authentication) {
-        UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationMs);
         
-        return Jwts.builder()
-                .subject(userPrincipal.getUsername())
+        JwtBuilder builder = Jwts.builder()
+                .subject(userDetails.getUsername())
                 .issuedAt(new Date())
-                .expiration(expiryDate)
-                .signWith(getSigningKey())
-                .compact();
+                .expiration(expiryDate);
+        
+        if (userDetails instanceof UserDetailsServiceImpl.UserPrincipal userPrincipal) {
+            String authority = userPrincipal.getAuthorities().iterator().next().getAuthority();
+            builder.claim(CLAIM_USER_ID, userPrincipal.getId())
+                    .claim(CLAIM_EMAIL, userPrincipal.getEmail())
+                    .claim(CLAIM_ROLE, authority.substring("ROLE_".length()))
+                    .claim(CLAIM_TOKEN_VERSION, userPrincipal.getTokenVersion());
+        }
+        
+        return builder.signWith(getSigningKey()).compact();
     }
     
     /**
@@ -63,24 +124,33 @@ public class JwtUtils {
     }
     
     /**
-     * 从JWT token中获取用户名
+     * 验证JWT token并返回其中的声明
+     * 只做一次签名校验和解析；验证通过的token按摘要缓存到过期时刻，
+     * 重复携带同一token的请求直接命中缓存，跳过HMAC计算
+     *
+     * @return 验证通过返回声明，token无效或已过期返回null
      */
-    public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
-    }
-    
-    /**
-     * 验证JWT token是否有效
-     */
-    public boolean validateJwtToken(String authToken) {
+    public Claims verifyJwtToken(String authToken) {
+        if (authToken == null || authToken.isEmpty()) {
+            log.error("JWT claims string is empty");
+            return null;
+        }
+        
+        String cacheKey = digest(authToken);
+        Claims cached = verifiedTokens.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (cached.getExpiration().after(new Date())) {
+                return cached;
+            }
+            verifiedTokens.invalidate(cacheKey);
+        }
+        
         try {
-            Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(authToken);
-            return true;
+            Claims claims = jwtParser.parseSignedClaims(authToken).getPayload();
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(cacheKey, claims);
+            }
+            return claims;
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -93,19 +163,49 @@ public class JwtUtils {
             log.error("JWT token validation error: {}", e.getMessage());
         }
         
-        return false;
+        return null;
+    }
+    
+    /**
+     * 从JWT token中获取用户名
+     */
+    public String getUsernameFromJwtToken(String token) {
+        Claims claims = verifyJwtToken(token);
+        if (claims == null) {
+            throw new JwtException("Invalid JWT token");
+        }
+        return claims.getSubject();
+    }
+    
+    /**
+     * 验证JWT token是否有效
+     */
+    public boolean validateJwtToken(String authToken) {
+        return verifyJwtToken(authToken) != null;
     }
     
     /**
      * 获取token过期时间
      */
     public Date getExpirationDateFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getExpiration();
+        Claims claims = verifyJwtToken(token);
+        if (claims == null) {
+            throw new JwtException("Invalid JWT token");
+        }
+        return claims.getExpiration();
+    }
+    
+    /**
+     * 计算token的SHA-256摘要，作为缓存key（避免在内存中以原文保存token）
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
     
     /**
@@ -0,0 +1,150 @@
+package com.codelearn.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 读写分离数据源
+ * 只读事务轮询分配到各个从库，其余访问使用主库：
+ * - 读己之写：客户端（登录用户，未登录时按IP）提交写事务后的一段时间内，它的只读事务仍走主库，
+ *   避免从库复制延迟导致刚写入的数据读不到
+ * - 从库获取连接失败时回退到主库
+ *
+ * 必须包装在LazyConnectionDataSourceProxy中使用：事务开始时只读标记还未设置，
+ * 延迟到第一条语句执行时才真正获取连接，此时才能判断是否只读
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String GLOBAL_CLIENT = "-";
+
+    private final DataSource primary;
+    private final List<String> replicaKeys;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /** 客户端 -> 最近一次写事务提交时间，过期即离开读己之写窗口 */
+    private final Cache<String, Long> recentWrites;
+
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder replicaRoutes = new LongAdder();
+    private final LongAdder pinnedToPrimary = new LongAdder();
+    private final LongAdder replicaFailures = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration readYourWritesWindow) {
+        this.primary = primary;
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put("replica-" + (i + 1), replicas.get(i));
+        }
+        this.replicaKeys = targets.keySet().stream().skip(1).map(String::valueOf).toList();
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(100_000)
+                .build();
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            markWriteOnCommit();
+            return PRIMARY;
+        }
+        if (replicaKeys.isEmpty()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        if (recentWrites.getIfPresent(currentClient()) != null) {
+            pinnedToPrimary.increment();
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        replicaRoutes.increment();
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        try {
+            return target.getConnection();
+        } catch (SQLException e) {
+            if (target == primary) {
+                throw e;
+            }
+            replicaFailures.increment();
+            log.warn("从库获取连接失败，回退到主库: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * 路由统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("replicas", replicaKeys);
+        stats.put("primaryRoutes", primaryRoutes.sum());
+        stats.put("replicaRoutes", replicaRoutes.sum());
+        stats.put("pinnedToPrimary", pinnedToPrimary.sum());
+        stats.put("replicaFailures", replicaFailures.sum());
+        stats.put("recentWriters", recentWrites.estimatedSize());
+        return stats;
+    }
+
+    /**
+     * 写事务提交后记录写入时间；不在事务中的访问（健康检查、DDL等）不记录
+     */
+    private void markWriteOnCommit() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String client = currentClient();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWrites.put(client, System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * 当前客户端：登录用户名，未登录时为请求IP，不在请求线程中时所有访问共用一个客户端
+     */
+    private static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !"anonymousUser".equals(authentication.getPrincipal())) {
+            return "user:" + authentication.getName();
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return "ip:" + attributes.getRequest().getRemoteAddr();
+        }
+        return GLOBAL_CLIENT;
+    }
+}
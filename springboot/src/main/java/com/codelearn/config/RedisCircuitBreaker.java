@@ -0,0 +1,209 @@
+package com.codelearn.config;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis熔断器
+ * 缓存层每次访问Redis前先询问熔断器：
+ * - CLOSED：正常访问，记录成功/失败
+ * - OPEN：连续失败达到阈值，或最近一段调用的错误率过高时打开，直接跳过Redis，不再等待超时
+ * - HALF_OPEN：打开期间由后台线程定期PING Redis探测，业务请求不参与探测；探测成功后关闭
+ *
+ * 熔断关闭时回调监听器（如清理打开期间漏掉的失效操作）
+ *
+ * 每次L2读写、标签操作都会记录结果，记录路径不加锁：滑动窗口是原子数组实现的环形缓冲区，
+ * 状态切换用CAS，高并发下（包括虚拟线程模式）不会在熔断器上排队或钉住载体线程。
+ * 并发记录时窗口统计可能有瞬时误差，不影响熔断判断
+ */
+@Slf4j
+public class RedisCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final RedisConnectionFactory connectionFactory;
+    private final int failureThreshold;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double errorRateThreshold;
+    private final Duration probeInterval;
+
+    /** 最近windowSize次调用的结果，1表示失败，按调用序号循环写入 */
+    private final AtomicIntegerArray window;
+    private final AtomicLong windowCalls = new AtomicLong();
+    private final AtomicInteger windowFailures = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile LocalDateTime lastStateChange = LocalDateTime.now();
+    private volatile String lastError;
+
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-circuit-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RedisCircuitBreaker(RedisConnectionFactory connectionFactory, int failureThreshold, int windowSize,
+                               int minimumCalls, double errorRateThreshold, Duration probeInterval) {
+        this.connectionFactory = connectionFactory;
+        this.failureThreshold = failureThreshold;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.errorRateThreshold = errorRateThreshold;
+        this.probeInterval = probeInterval;
+        this.window = new AtomicIntegerArray(windowSize);
+        prober.scheduleWithFixedDelay(this::probe, probeInterval.toMillis(), probeInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 是否允许访问Redis（只有CLOSED状态允许）
+     */
+    public boolean allowRequest() {
+        if (state.get() == State.CLOSED) {
+            return true;
+        }
+        rejectedCalls.increment();
+        return false;
+    }
+
+    public void recordSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);  // 只在有连续失败时写入，正常情况下不争用
+        }
+        record(false);
+    }
+
+    public void recordFailure(Throwable error) {
+        lastError = error.getMessage();
+        int consecutive = consecutiveFailures.incrementAndGet();
+        record(true);
+        if (state.get() != State.CLOSED) {
+            return;
+        }
+        int calls = windowCount();
+        int failures = windowFailures.get();
+        boolean tooManyConsecutive = consecutive >= failureThreshold;
+        boolean errorRateTooHigh = calls >= minimumCalls && (double) failures / calls >= errorRateThreshold;
+        if ((tooManyConsecutive || errorRateTooHigh) && transition(State.CLOSED, State.OPEN)) {
+            opened.increment();
+            log.warn("Redis熔断器打开，连续失败: {}, 错误率: {}/{}，原因: {}",
+                    consecutive, failures, calls, lastError);
+        }
+    }
+
+    /**
+     * 熔断关闭（Redis恢复）时回调
+     */
+    public void addCloseListener(Runnable listener) {
+        closeListeners.add(listener);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("state", state.get().name());
+        stats.put("lastStateChange", lastStateChange);
+        stats.put("consecutiveFailures", consecutiveFailures.get());
+        stats.put("windowCalls", windowCount());
+        stats.put("windowFailures", windowFailures.get());
+        stats.put("rejectedCalls", rejectedCalls.sum());
+        stats.put("openedCount", opened.sum());
+        stats.put("probeInterval", probeInterval.toString());
+        if (lastError != null) {
+            stats.put("lastError", lastError);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prober.shutdownNow();
+    }
+
+    /**
+     * 后台探测：只在OPEN状态下执行，PING成功则关闭熔断
+     */
+    private void probe() {
+        if (!transition(State.OPEN, State.HALF_OPEN)) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            transition(State.HALF_OPEN, State.OPEN);
+            log.debug("Redis探测失败，熔断器保持打开: {}", e.getMessage());
+            return;
+        }
+
+        // 非CLOSED状态下业务请求不访问Redis，重置窗口时基本没有并发记录
+        consecutiveFailures.set(0);
+        for (int i = 0; i < windowSize; i++) {
+            window.set(i, 0);
+        }
+        windowFailures.set(0);
+        windowCalls.set(0);
+        transition(State.HALF_OPEN, State.CLOSED);
+        log.info("Redis探测成功，熔断器关闭");
+        for (Runnable listener : closeListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.warn("熔断关闭回调执行失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 写入环形缓冲区：按调用序号取槽位，替换掉的旧结果从失败数中扣除
+     */
+    private void record(boolean failure) {
+        int slot = (int) (windowCalls.getAndIncrement() % windowSize);
+        int value = failure ? 1 : 0;
+        int previous = window.getAndSet(slot, value);
+        if (value != previous) {
+            windowFailures.addAndGet(value - previous);
+        }
+    }
+
+    private int windowCount() {
+        return (int) Math.min(windowCalls.get(), windowSize);
+    }
+
+    private boolean transition(State expected, State newState) {
+        if (!state.compareAndSet(expected, newState)) {
+            return false;
+        }
+        lastStateChange = LocalDateTime.now();
+        return true;
+    }
+}
@@ -1,5 +1,12 @@
 package com.codelearn.config;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,10 +14,14 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Redis配置类
@@ -19,6 +30,39 @@ import java.time.Duration;
 @Configuration
 public class RedisConfig {
     
+    @Value("${app.cache.local.max-size:1000}")
+    private long localCacheMaxSize;
+    
+    @Value("${app.cache.local.ttl:60s}")
+    private Duration localCacheTtl;
+    
+    @Value("${app.cache.redis.ttl:30m}")
+    private Duration redisCacheTtl;
+    
+    @Value("${app.cache.redis.codec:binary}")
+    private String redisCacheCodec;
+    
+    @Value("${app.cache.invalidation.batch-size:100}")
+    private int invalidationBatchSize;
+    
+    @Value("${app.cache.invalidation.batch-interval:20ms}")
+    private Duration invalidationBatchInterval;
+    
+    @Value("${app.cache.circuit-breaker.failure-threshold:3}")
+    private int breakerFailureThreshold;
+    
+    @Value("${app.cache.circuit-breaker.window-size:50}")
+    private int breakerWindowSize;
+    
+    @Value("${app.cache.circuit-breaker.minimum-calls:20}")
+    private int breakerMinimumCalls;
+    
+    @Value("${app.cache.circuit-breaker.error-rate-threshold:0.5}")
+    private double breakerErrorRateThreshold;
+    
+    @Value("${app.cache.circuit-breaker.probe-interval:5s}")
+    private Duration breakerProbeInterval;
+    
     /**
      * 配置RedisTemplate
      * 设置序列化方式
@@ -33,7 +77,7 @@ public class RedisConfig {
         template.setHashKeySerializer(new StringRedisSerializer());
         
         // 设置value的序列化方式（JSON格式）
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+        GenericJackson2JsonRedisSerializer serializer = jsonRedisSerializer();
         template.setValueSerializer(serializer);
         template.setHashValueSerializer(serializer);
         
@@ -41,22 +85,92 @@ public class RedisConfig {
         return template;
     }
     
+    /**
+     * JSON序列化器
+     * 注册Java8时间模块（User包含LocalDateTime字段），并写入类型信息以便反序列化
+     */
+    static GenericJackson2JsonRedisSerializer jsonRedisSerializer() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapper.activateDefaultTyping(mapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(mapper, null);
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
+    
+    /**
+     * 缓存值序列化器
+     * binary：用户相关的值使用紧凑二进制格式，其他值仍为JSON；json：全部使用JSON
+     * binary可以读取之前写入的JSON条目；切回json后无法解码的二进制条目按未命中处理，均无需清空Redis
+     */
+    private RedisSerializer<Object> cacheValueSerializer() {
+        switch (redisCacheCodec) {
+            case "binary":
+                return new UserBinaryRedisSerializer(jsonRedisSerializer());
+            case "json":
+                return jsonRedisSerializer();
+            default:
+                throw new IllegalArgumentException("不支持的缓存序列化方式: " + redisCacheCodec);
+        }
+    }
+    
+    /**
+     * Redis熔断器
+     * Redis故障时缓存层直接跳过Redis，不再每个请求等待连接超时
+     */
+    @Bean
+    public RedisCircuitBreaker redisCircuitBreaker(RedisConnectionFactory factory) {
+        return new RedisCircuitBreaker(factory, breakerFailureThreshold, breakerWindowSize,
+                breakerMinimumCalls, breakerErrorRateThreshold, breakerProbeInterval);
+    }
+    
+    /**
+     * 缓存失效通知发布者（批量发布，带序号）
+     */
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(StringRedisTemplate stringRedisTemplate,
+                                                                 RedisCircuitBreaker redisCircuitBreaker,
+                                                                 MeterRegistry meterRegistry) {
+        return new CacheInvalidationPublisher(stringRedisTemplate, redisCircuitBreaker,
+                invalidationBatchSize, invalidationBatchInterval, meterRegistry);
+    }
+    
     /**
      * 配置缓存管理器
-     * 设置缓存过期时间和序列化
+     * 一级：进程内Caffeine缓存（容量和过期时间可配置）
+     * 二级：Redis缓存，设置缓存过期时间和序列化
+     * 每个缓存区域可以单独配置两级的过期时间和本地容量（app.cache.regions）
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory factory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory factory,
+                                             CacheInvalidationPublisher cacheInvalidationPublisher,
+                                             RedisCircuitBreaker redisCircuitBreaker,
+                                             CacheRegionProperties cacheRegionProperties,
+                                             MeterRegistry meterRegistry) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(30))  // 缓存30分钟过期
+                .entryTtl(redisCacheTtl)  // 默认缓存30分钟过期
                 .serializeKeysWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
                         .fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
-                        .fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                        .fromSerializer(cacheValueSerializer()))
                 .disableCachingNullValues();  // 不缓存null值
         
-        return RedisCacheManager.builder(factory)
+        // 按区域覆盖Redis过期时间
+        Map<String, RedisCacheConfiguration> regionConfigs = new HashMap<>();
+        cacheRegionProperties.getRegions().forEach((name, region) -> {
+            if (region.getTtl() != null) {
+                regionConfigs.put(name, config.entryTtl(region.getTtl()));
+            }
+        });
+        
+        CacheManager redisCacheManager = RedisCacheManager.builder(factory)
                 .cacheDefaults(config)
+                .withInitialCacheConfigurations(regionConfigs)
                 .build();
+        
+        return new TwoLevelCacheManager(redisCacheManager, factory, cacheInvalidationPublisher, redisCircuitBreaker,
+                cacheRegionProperties, localCacheMaxSize, localCacheTtl, meterRegistry);
     }
 } 
\ No newline at end of file
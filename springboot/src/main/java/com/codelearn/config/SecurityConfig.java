@@ -1,7 +1,9 @@
 package com.codelearn.config;
 
 import com.codelearn.service.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,7 +14,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -20,6 +21,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 /**
@@ -36,22 +38,36 @@ public class SecurityConfig {
     private final JwtAuthenticationEntryPoint unauthorizedHandler;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     
+    @Value("${app.security.bcrypt-strength:10}")
+    private int bcryptStrength;
+    
+    @Value("${app.security.hash.threads:2}")
+    private int hashThreads;
+    
+    @Value("${app.security.hash.queue-capacity:64}")
+    private int hashQueueCapacity;
+    
+    @Value("${app.security.hash.wait-timeout:5s}")
+    private Duration hashWaitTimeout;
+    
     /**
      * 密码编码器
+     * BCrypt在专用的有界线程池中执行，避免登录/注册突增时占满Tomcat请求线程
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(bcryptStrength, hashThreads, hashQueueCapacity,
+                hashWaitTimeout, meterRegistry);
     }
     
     /**
      * 认证提供者
      */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
     
@@ -67,7 +83,8 @@ public class SecurityConfig {
      * 配置安全过滤器链
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           DaoAuthenticationProvider authenticationProvider) throws Exception {
         http
                 // 禁用CSRF保护（JWT不需要）
                 .csrf(AbstractHttpConfigurer::disable)
@@ -85,8 +102,10 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authz -> authz
                         // 公开端点
                         .requestMatchers("/api/auth/**").permitAll()
+                        .requestMatchers("/api/system/admin/**").hasRole("ADMIN")  // 需在/api/system/**之前匹配
                         .requestMatchers("/api/system/**").permitAll()
                         .requestMatchers("/h2-console/**").permitAll()
+                        .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")  // 含按接口的耗时和SQL指标
                         .requestMatchers("/actuator/**").permitAll()
                         
                         // 需要USER角色的端点
@@ -100,7 +119,7 @@ public class SecurityConfig {
                 )
                 
                 // 设置认证提供者
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 
                 // 添加JWT过滤器
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
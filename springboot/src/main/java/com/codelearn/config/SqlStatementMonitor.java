@@ -0,0 +1,387 @@
+package com.codelearn.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * SQL执行监控：慢SQL和N+1检测
+ * 数据源由datasource-proxy包装（见DataSourceProxyConfig），每条语句执行后回调：
+ * - 慢SQL：执行时间超过阈值时记录日志，日志包含SQL、耗时、行数（查询为读取的行数，更新为影响的行数）和所属接口
+ * - N+1：同一请求内相同形状（参数占位、IN列表合并后相同）的语句执行次数达到阈值时记录日志
+ *
+ * 统计按控制器方法汇总，认证过滤器等在处理方法之前执行的语句也算在该请求所属的接口上；
+ * 不在请求线程中的语句（定时任务、导出流等）只做慢SQL检测，计入background。
+ * 有了这些统计，不再需要打开show-sql和参数绑定日志来排查SQL问题
+ */
+@Component
+@Slf4j
+public class SqlStatementMonitor implements QueryExecutionListener, MethodExecutionListener, HandlerInterceptor {
+
+    private static final String ATTRIBUTE = SqlStatementMonitor.class.getName();
+    private static final String BACKGROUND = "background";
+    private static final int MAX_SHAPES_PER_ENDPOINT = 20;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${app.sql.monitor.slow-threshold:100ms}")
+    private Duration slowThreshold;
+
+    @Value("${app.sql.monitor.repeated-threshold:5}")
+    private int repeatedThreshold;
+
+    /** 查询结果集尚未读完的语句，读完（结果集关闭）后才知道行数 */
+    private final ThreadLocal<Statement> pending = new ThreadLocal<>();
+
+    private final Map<Method, String> handlerNames = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 数据源在MeterRegistry之前创建，指标在首次使用时才注册
+     */
+    public SqlStatementMonitor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        complete(pending.get());
+        String sql = queryInfoList.size() == 1 ? queryInfoList.get(0).getQuery()
+                : queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        RequestStats request = currentRequest();
+        Statement statement = new Statement(sql, shape(sql), execInfo.getElapsedTime(),
+                updateCount(execInfo.getResult()), request);
+        if (request != null) {
+            request.statements++;
+            request.shapes.merge(statement.shape, 1, Integer::sum);
+        }
+        if (execInfo.getResult() instanceof ResultSet) {
+            pending.set(statement);
+        } else {
+            complete(statement);
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    /**
+     * 统计结果集读取的行数，结果集关闭时完成该语句
+     */
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (!(executionContext.getTarget() instanceof ResultSet)) {
+            return;
+        }
+        Statement statement = pending.get();
+        if (statement == null) {
+            return;
+        }
+        String method = executionContext.getMethod().getName();
+        if ("next".equals(method) && Boolean.TRUE.equals(executionContext.getResult())) {
+            statement.rows++;
+        } else if ("close".equals(method)) {
+            complete(statement);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            RequestStats stats = currentRequest();
+            if (stats != null) {
+                stats.handler = handlerName(handlerMethod.getMethod());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 请求结束时汇总到接口统计，并检查N+1
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        complete(pending.get());
+        if (!(request.getAttribute(ATTRIBUTE) instanceof RequestStats stats) || stats.handler == null) {
+            return;
+        }
+        EndpointStats endpoint = endpoint(stats.handler);
+        endpoint.requests.increment();
+        endpoint.statementsPerRequest().record(stats.statements);
+        for (Statement slow : stats.slow) {
+            endpoint.recordSlow(slow);
+        }
+        stats.shapes.forEach((shape, count) -> {
+            if (count >= repeatedThreshold) {
+                log.warn("疑似N+1查询 [{}]: 同一语句在一次请求中执行了 {} 次: {}", stats.handler, count, shape);
+                endpoint.recordRepeated(shape, count);
+            }
+        });
+    }
+
+    /**
+     * 按接口的SQL统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> byEndpoint = new TreeMap<>();
+        endpoints.forEach((handler, endpoint) -> byEndpoint.put(handler, endpoint.toMap()));
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("slowThresholdMs", slowThreshold.toMillis());
+        stats.put("repeatedThreshold", repeatedThreshold);
+        stats.put("endpoints", byEndpoint);
+        return stats;
+    }
+
+    private void complete(Statement statement) {
+        if (statement == null || statement.completed) {
+            return;
+        }
+        statement.completed = true;
+        if (pending.get() == statement) {
+            pending.remove();
+        }
+        if (statement.elapsedMs < slowThreshold.toMillis()) {
+            return;
+        }
+        RequestStats request = statement.request;
+        String handler = request == null ? BACKGROUND : request.handler != null ? request.handler : "filter";
+        log.warn("慢SQL [{}]: 耗时 {}ms，行数 {}: {}", handler, statement.elapsedMs, statement.rows, statement.sql);
+        if (request != null) {
+            request.slow.add(statement);  // 请求结束时再计入接口统计，此时处理方法可能还未确定
+        } else {
+            endpoint(BACKGROUND).recordSlow(statement);
+        }
+    }
+
+    /**
+     * 当前请求的统计，不在请求线程中时返回null
+     */
+    private RequestStats currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object stats = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (stats == null) {
+            stats = new RequestStats();
+            attributes.setAttribute(ATTRIBUTE, stats, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (RequestStats) stats;
+    }
+
+    private String handlerName(Method method) {
+        return handlerNames.computeIfAbsent(method,
+                m -> m.getDeclaringClass().getSimpleName() + "." + m.getName());
+    }
+
+    private EndpointStats endpoint(String handler) {
+        return endpoints.computeIfAbsent(handler, EndpointStats::new);
+    }
+
+    /**
+     * 语句形状：合并空白，IN列表等多个占位符合并为一个，参数个数不同的同一查询视为同一形状
+     */
+    static String shape(String sql) {
+        String collapsed = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return PARAMETER_LIST.matcher(collapsed).replaceAll("(?...)");
+    }
+
+    /**
+     * 更新语句影响的行数，批量执行时求和；查询返回0，之后按读取的行数累加
+     */
+    private static long updateCount(Object result) {
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    private static final class RequestStats {
+
+        private String handler;
+        private int statements;
+        private final Map<String, Integer> shapes = new HashMap<>();
+        private final List<Statement> slow = new ArrayList<>();
+    }
+
+    private static final class Statement {
+
+        private final String sql;
+        private final String shape;
+        private final long elapsedMs;
+        private final RequestStats request;
+        private long rows;
+        private boolean completed;
+
+        Statement(String sql, String shape, long elapsedMs, long rows, RequestStats request) {
+            this.sql = sql;
+            this.shape = shape;
+            this.elapsedMs = elapsedMs;
+            this.rows = rows;
+            this.request = request;
+        }
+    }
+
+    /**
+     * 同一形状语句的统计：出现次数和最大值（慢SQL为最大耗时，N+1为单个请求内的最多执行次数）
+     */
+    private static final class ShapeStats {
+
+        private final LongAdder occurrences = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private volatile long rowsAtMax;
+
+        void record(long value, long rows) {
+            occurrences.increment();
+            if (max.getAndAccumulate(value, Math::max) <= value) {
+                rowsAtMax = rows;
+            }
+        }
+    }
+
+    private final class EndpointStats {
+
+        private final String handler;
+        private final LongAdder requests = new LongAdder();
+        private final Map<String, ShapeStats> slowShapes = new ConcurrentHashMap<>();
+        private final Map<String, ShapeStats> repeatedShapes = new ConcurrentHashMap<>();
+        private volatile DistributionSummary statementsPerRequest;
+        private volatile Counter slowCounter;
+        private volatile Counter repeatedCounter;
+
+        EndpointStats(String handler) {
+            this.handler = handler;
+        }
+
+        void recordSlow(Statement statement) {
+            slowCounter().increment();
+            shapeStats(slowShapes, statement.shape).record(statement.elapsedMs, statement.rows);
+        }
+
+        void recordRepeated(String shape, int count) {
+            repeatedCounter().increment();
+            shapeStats(repeatedShapes, shape).record(count, 0);
+        }
+
+        DistributionSummary statementsPerRequest() {
+            if (statementsPerRequest == null) {
+                statementsPerRequest = DistributionSummary.builder("endpoint.sql.statements")
+                        .tag("handler", handler)
+                        .description("每个请求执行的SQL语句数")
+                        .register(meterRegistry.getObject());
+            }
+            return statementsPerRequest;
+        }
+
+        Counter slowCounter() {
+            if (slowCounter == null) {
+                slowCounter = Counter.builder("endpoint.sql.slow")
+                        .tag("handler", handler)
+                        .description("慢SQL次数")
+                        .register(meterRegistry.getObject());
+            }
+            return slowCounter;
+        }
+
+        Counter repeatedCounter() {
+            if (repeatedCounter == null) {
+                repeatedCounter = Counter.builder("endpoint.sql.repeated")
+                        .tag("handler", handler)
+                        .description("疑似N+1查询的请求次数")
+                        .register(meterRegistry.getObject());
+            }
+            return repeatedCounter;
+        }
+
+        /**
+         * 每个接口最多记录固定数量的形状，避免SQL形状过多时无限增长
+         */
+        private ShapeStats shapeStats(Map<String, ShapeStats> shapes, String shape) {
+            ShapeStats stats = shapes.get(shape);
+            if (stats != null) {
+                return stats;
+            }
+            return shapes.size() < MAX_SHAPES_PER_ENDPOINT
+                    ? shapes.computeIfAbsent(shape, s -> new ShapeStats()) : new ShapeStats();
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("requests", requests.sum());
+            if (statementsPerRequest != null) {
+                map.put("statementsPerRequestMean", statementsPerRequest.mean());
+                map.put("statementsPerRequestMax", (long) statementsPerRequest.max());
+            }
+            map.put("slow", shapesToList(slowShapes, "maxMs", true));
+            map.put("repeated", shapesToList(repeatedShapes, "maxPerRequest", false));
+            return map;
+        }
+
+        private static List<Map<String, Object>> shapesToList(Map<String, ShapeStats> shapes, String maxName,
+                                                              boolean withRows) {
+            return shapes.entrySet().stream()
+                    .sorted(Comparator.comparingLong(
+                            (Map.Entry<String, ShapeStats> entry) -> entry.getValue().max.get()).reversed())
+                    .map(entry -> {
+                        Map<String, Object> item = new HashMap<>();
+                        item.put("sql", entry.getKey());
+                        item.put("count", entry.getValue().occurrences.sum());
+                        item.put(maxName, entry.getValue().max.get());
+                        if (withRows) {
+                            item.put("rowsAtMax", entry.getValue().rowsAtMax);
+                        }
+                        return item;
+                    })
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.codelearn.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * 请求处理的线程模式
+ * spring.threads.virtual.enabled=true 且运行在Java 21及以上时，Spring Boot把Tomcat请求处理、
+ * 默认的@Async执行器和定时任务都切换到虚拟线程；缓存降级（Redis熔断后直接查库）在请求线程中执行，随之运行在虚拟线程上。
+ *
+ * 以下线程池保持平台线程，不随模式切换：
+ * - 密码哈希（BoundedPasswordEncoder）、批量导入的哈希线程池：CPU密集，需要固定线程数限制CPU占用
+ * - 缓存失效发布/订阅、熔断探测：单个常驻后台线程
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ThreadingMode {
+
+    private static final int VIRTUAL_THREADS_MIN_JAVA = 21;
+
+    private final Environment environment;
+
+    /**
+     * 当前是否使用虚拟线程
+     */
+    public boolean isVirtual() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    public String getName() {
+        return isVirtual() ? "virtual" : "platform";
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (requested && !isVirtual()) {
+            // Spring Boot在低版本Java上会静默忽略该配置，这里明确提示
+            log.warn("已配置虚拟线程，但当前Java版本 {} 不支持（需要{}及以上），继续使用平台线程",
+                    Runtime.version().feature(), VIRTUAL_THREADS_MIN_JAVA);
+        } else {
+            log.info("请求处理线程模式: {}", getName());
+        }
+    }
+}
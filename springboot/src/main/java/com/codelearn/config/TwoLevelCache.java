@@ -0,0 +1,382 @@
+package com.codelearn.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 二级缓存
+ * 一级（L1）：进程内Caffeine缓存，容量和存活时间受限
+ * 二级（L2）：Redis缓存（RedisCacheManager创建的RedisCache）
+ *
+ * 读取时先查L1，未命中再查L2并回填L1；写入和失效同时作用于两级，
+ * 失效操作还会通知其他实例清除各自的L1条目
+ *
+ * 所有L2访问都经过Redis熔断器：熔断打开时L2读取视为未命中、写入只写L1，
+ * 失效操作无法同步到Redis，记录下来，在熔断关闭后整体清空该缓存的L2
+ *
+ * 批量读写（getAll/putAll）绕过RedisCache，直接用一次MGET和一次流水线SET访问Redis，
+ * key前缀、序列化方式和过期时间仍取自RedisCache的配置，与单条读写的条目互通
+ *
+ * L1保存的是按L2序列化方式编码后的字节，每次读取都解码出新的对象：
+ * 调用方修改返回的实体（如setStatus）不会影响其他线程拿到的值，事务回滚后也不会残留在缓存里
+ */
+@Slf4j
+public class TwoLevelCache implements org.springframework.cache.Cache {
+
+    private final String name;
+    private final Cache<String, byte[]> localCache;
+    private final RedisCache redisCache;
+    private final RedisConnectionFactory connectionFactory;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final RedisCircuitBreaker circuitBreaker;
+
+    /** 熔断期间是否有未能同步到Redis的失效操作 */
+    private final AtomicBoolean invalidationMissed = new AtomicBoolean();
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l1Misses = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+    private final LongAdder l2Skipped = new LongAdder();
+
+    public TwoLevelCache(String name, Cache<String, byte[]> localCache,
+                         RedisCache redisCache,
+                         RedisConnectionFactory connectionFactory,
+                         CacheInvalidationPublisher invalidationPublisher,
+                         RedisCircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.localCache = localCache;
+        this.redisCache = redisCache;
+        this.connectionFactory = connectionFactory;
+        this.invalidationPublisher = invalidationPublisher;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = toLocalKey(key);
+        Object value = getLocal(localKey);
+        if (value != null) {
+            l1Hits.increment();
+            return new SimpleValueWrapper(value);
+        }
+        l1Misses.increment();
+
+        if (!circuitBreaker.allowRequest()) {
+            l2Skipped.increment();
+            return null;
+        }
+        ValueWrapper wrapper;
+        try {
+            wrapper = redisCache.get(key);
+            circuitBreaker.recordSuccess();
+        } catch (SerializationException e) {
+            // Redis本身可用，只是条目无法解码（如序列化格式不兼容），按未命中处理，重新加载后覆盖
+            circuitBreaker.recordSuccess();
+            l2Misses.increment();
+            log.warn("缓存条目无法解码，按未命中处理: {}::{} - {}", name, key, e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+        if (wrapper != null && wrapper.get() != null) {
+            l2Hits.increment();
+            putLocal(localKey, wrapper.get());
+            return wrapper;
+        }
+        l2Misses.increment();
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("缓存值类型不匹配: " + type.getName() + " / " + value.getClass().getName());
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;  // 与L2保持一致，不缓存null值
+        }
+        putLocal(toLocalKey(key), value);
+        if (!circuitBreaker.allowRequest()) {
+            l2Skipped.increment();
+            return;
+        }
+        try {
+            redisCache.put(key, value);
+            circuitBreaker.recordSuccess();
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量读取：先查L1，L1未命中的key用一次MGET从L2读取并回填L1
+     *
+     * @return 命中的 key -> 值，未命中的key不在结果中
+     */
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> found = new LinkedHashMap<>();
+        List<Object> misses = new ArrayList<>();
+        for (Object key : keys) {
+            Object value = getLocal(toLocalKey(key));
+            if (value != null) {
+                found.put(key, value);
+            } else {
+                misses.add(key);
+            }
+        }
+        l1Hits.add(found.size());
+        l1Misses.add(misses.size());
+        if (misses.isEmpty()) {
+            return found;
+        }
+        if (!circuitBreaker.allowRequest()) {
+            l2Skipped.add(misses.size());
+            return found;
+        }
+
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        byte[][] redisKeys = new byte[misses.size()][];
+        for (int i = 0; i < misses.size(); i++) {
+            redisKeys[i] = redisKey(config, misses.get(i));
+        }
+        List<byte[]> values;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            values = connection.stringCommands().mGet(redisKeys);
+            circuitBreaker.recordSuccess();
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+
+        for (int i = 0; i < misses.size(); i++) {
+            byte[] bytes = values != null && i < values.size() ? values.get(i) : null;
+            Object value = null;
+            if (bytes != null) {
+                try {
+                    value = config.getValueSerializationPair().read(ByteBuffer.wrap(bytes));
+                } catch (SerializationException e) {
+                    log.warn("缓存条目无法解码，按未命中处理: {}::{} - {}", name, misses.get(i), e.getMessage());
+                }
+            }
+            if (value != null) {
+                l2Hits.increment();
+                localCache.put(toLocalKey(misses.get(i)), bytes);  // L2读到的字节原样放入L1，不必重新编码
+                found.put(misses.get(i), value);
+            } else {
+                l2Misses.increment();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 批量写入：写入L1，再用一次流水线SET写入L2（过期时间与单条写入相同）
+     */
+    public void putAll(Map<?, ?> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        values.forEach((key, value) -> {
+            if (value != null) {
+                putLocal(toLocalKey(key), value);
+            }
+        });
+        if (!circuitBreaker.allowRequest()) {
+            l2Skipped.add(values.size());
+            return;
+        }
+
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            try {
+                values.forEach((key, value) -> {
+                    if (value == null) {
+                        return;
+                    }
+                    Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+                    byte[] bytes = ByteUtils.getBytes(config.getValueSerializationPair().write(value));
+                    Expiration expiration = ttl == null || ttl.isZero() || ttl.isNegative()
+                            ? Expiration.persistent() : Expiration.from(ttl);
+                    connection.stringCommands().set(redisKey(config, key), bytes, expiration,
+                            RedisStringCommands.SetOption.upsert());
+                });
+            } finally {
+                connection.closePipeline();
+            }
+            circuitBreaker.recordSuccess();
+        } catch (RuntimeException e) {
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        try {
+            invalidateRemote(() -> redisCache.evict(key));
+        } finally {
+            evictLocal(key);
+            invalidationPublisher.publishEvict(name, toLocalKey(key));
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            invalidateRemote(redisCache::clear);
+        } finally {
+            clearLocal();
+            invalidationPublisher.publishClear(name);
+        }
+    }
+
+    /**
+     * 熔断关闭后补偿：熔断期间有失效操作没能写到Redis时，清空整个L2并通知其他实例清空L1
+     */
+    public void recoverMissedInvalidations() {
+        if (!invalidationMissed.compareAndSet(true, false)) {
+            return;
+        }
+        log.info("Redis恢复，清空缓存{}以补偿熔断期间漏掉的失效操作", name);
+        clear();
+    }
+
+    /**
+     * 只清除本实例的L1条目（收到其他实例的失效通知时调用）
+     */
+    public void evictLocal(Object key) {
+        localCache.invalidate(toLocalKey(key));
+    }
+
+    /**
+     * 只清空本实例的L1缓存
+     */
+    public void clearLocal() {
+        localCache.invalidateAll();
+    }
+
+    /**
+     * 两级缓存的命中统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("l1Size", localCache.estimatedSize());
+        stats.put("l1Hits", l1Hits.sum());
+        stats.put("l1Misses", l1Misses.sum());
+        stats.put("l2Hits", l2Hits.sum());
+        stats.put("l2Misses", l2Misses.sum());
+        stats.put("l2Skipped", l2Skipped.sum());
+        return stats;
+    }
+
+    /**
+     * 从L1读取并解码出新的对象，条目无法解码时清除并按未命中处理
+     */
+    private Object getLocal(String localKey) {
+        byte[] bytes = localCache.getIfPresent(localKey);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return redisCache.getCacheConfiguration().getValueSerializationPair().read(ByteBuffer.wrap(bytes));
+        } catch (SerializationException e) {
+            localCache.invalidate(localKey);
+            log.warn("L1缓存条目无法解码，按未命中处理: {}::{} - {}", name, localKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private void putLocal(String localKey, Object value) {
+        byte[] bytes = ByteUtils.getBytes(redisCache.getCacheConfiguration().getValueSerializationPair().write(value));
+        localCache.put(localKey, bytes);
+    }
+
+    private void invalidateRemote(Runnable operation) {
+        if (!circuitBreaker.allowRequest()) {
+            invalidationMissed.set(true);
+            return;
+        }
+        try {
+            operation.run();
+            circuitBreaker.recordSuccess();
+        } catch (RuntimeException e) {
+            invalidationMissed.set(true);
+            circuitBreaker.recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 与RedisCache生成的key一致：区域前缀 + 字符串形式的key
+     */
+    private byte[] redisKey(RedisCacheConfiguration config, Object key) {
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(config.getKeyPrefixFor(name) + toLocalKey(key)));
+    }
+
+    /**
+     * RedisCache会把key转换为字符串，L1也统一使用字符串key，保证两级及跨实例失效时key一致
+     */
+    private static String toLocalKey(Object key) {
+        return String.valueOf(key);
+    }
+}
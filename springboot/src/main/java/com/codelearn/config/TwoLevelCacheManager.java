@@ -0,0 +1,197 @@
+package com.codelearn.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.SubscriptionListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 二级缓存管理器
+ * 在RedisCacheManager前面叠加一层进程内Caffeine缓存，
+ * 同时监听其他实例发布的失效通知，清除本地L1条目；
+ * 消息丢失（序号缺口、断线重连）时清空全部本地缓存
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener, SubscriptionListener {
+
+    private final CacheManager redisCacheManager;
+    private final RedisConnectionFactory connectionFactory;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final CacheRegionProperties regionProperties;
+    private final long localMaxSize;
+    private final Duration localTtl;
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 每个发布实例最后收到的消息序号 */
+    private final com.github.benmanes.caffeine.cache.Cache<String, Long> lastSequences = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder sequenceGaps = new LongAdder();
+    private final LongAdder resubscriptions = new LongAdder();
+    private final Timer invalidationLag;
+
+    /** 不属于二级缓存、但也通过失效通知同步的本地结构（如负缓存），按名称注册 */
+    private final ConcurrentMap<String, Consumer<String>> invalidationListeners = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager redisCacheManager, RedisConnectionFactory connectionFactory,
+                                CacheInvalidationPublisher invalidationPublisher,
+                                RedisCircuitBreaker circuitBreaker, CacheRegionProperties regionProperties,
+                                long localMaxSize, Duration localTtl, MeterRegistry meterRegistry) {
+        this.redisCacheManager = redisCacheManager;
+        this.connectionFactory = connectionFactory;
+        this.invalidationPublisher = invalidationPublisher;
+        this.circuitBreaker = circuitBreaker;
+        this.regionProperties = regionProperties;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = localTtl;
+        this.invalidationLag = Timer.builder("cache.invalidation.lag")
+                .description("失效通知从发布到本实例处理的延迟（依赖各实例时钟同步）")
+                .register(meterRegistry);
+        Gauge.builder("cache.invalidation.sequence.gaps", sequenceGaps, LongAdder::sum)
+                .description("发现的失效通知序号缺口数")
+                .register(meterRegistry);
+        circuitBreaker.addCloseListener(() -> caches.values().forEach(TwoLevelCache::recoverMissedInvalidations));
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return caches.keySet();
+    }
+
+    /**
+     * 注册失效通知监听器，收到其他实例发布的该名称的失效通知时回调（参数为key，清空时为*）
+     */
+    public void addInvalidationListener(String name, Consumer<String> listener) {
+        invalidationListeners.put(name, listener);
+    }
+
+    private TwoLevelCache createCache(String name) {
+        CacheRegionProperties.Region region = regionProperties.getRegion(name);
+        com.github.benmanes.caffeine.cache.Cache<String, byte[]> localCache = Caffeine.newBuilder()
+                .maximumSize(region.getLocalMaxSize() != null ? region.getLocalMaxSize() : localMaxSize)
+                .expireAfterWrite(region.getLocalTtl() != null ? region.getLocalTtl() : localTtl)
+                .build();
+        return new TwoLevelCache(name, localCache, (RedisCache) redisCacheManager.getCache(name), connectionFactory,
+                invalidationPublisher, circuitBreaker);
+    }
+
+    /**
+     * 处理其他实例发布的失效通知
+     * 同一发布实例的序号不连续说明中间有消息丢失，无法知道丢了哪些条目，清空全部本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidationMessage invalidation;
+        try {
+            invalidation = objectMapper.readValue(message.getBody(), CacheInvalidationMessage.class);
+        } catch (Exception e) {
+            log.warn("无法解析缓存失效通知: {}", e.getMessage());
+            return;
+        }
+        if (invalidationPublisher.getInstanceId().equals(invalidation.getInstanceId())) {
+            return;  // 本实例自己发出的通知
+        }
+        messagesReceived.increment();
+        invalidationLag.record(Math.max(0, System.currentTimeMillis() - invalidation.getTimestamp()),
+                TimeUnit.MILLISECONDS);
+
+        Long previous = lastSequences.asMap().put(invalidation.getInstanceId(), invalidation.getSequence());
+        if (previous != null && invalidation.getSequence() != previous + 1) {
+            sequenceGaps.increment();
+            log.warn("缓存失效通知序号不连续，实例: {}, 上一条: {}, 本条: {}，清空本地缓存",
+                    invalidation.getInstanceId(), previous, invalidation.getSequence());
+            clearAllLocal();
+            return;
+        }
+
+        for (List<String> entry : invalidation.getEntries()) {
+            if (entry.size() == 2) {
+                applyInvalidation(entry.get(0), entry.get(1));
+            }
+        }
+        log.debug("收到缓存失效通知，实例: {}, 序号: {}, 条目: {}",
+                invalidation.getInstanceId(), invalidation.getSequence(), invalidation.getEntries());
+    }
+
+    /**
+     * 订阅建立（包括断线后重新订阅）时，断开期间的通知已经丢失，清空全部本地缓存
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        resubscriptions.increment();
+        log.info("已订阅缓存失效通知频道，清空本地缓存");
+        clearAllLocal();
+    }
+
+    private void applyInvalidation(String name, String key) {
+        Consumer<String> listener = invalidationListeners.get(name);
+        if (listener != null) {
+            listener.accept(key);
+        }
+        TwoLevelCache cache = caches.get(name);
+        if (cache == null) {
+            return;
+        }
+        if (CacheInvalidationPublisher.ALL_KEYS.equals(key)) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(key);
+        }
+    }
+
+    private void clearAllLocal() {
+        caches.values().forEach(TwoLevelCache::clearLocal);
+        invalidationListeners.values().forEach(listener -> listener.accept(CacheInvalidationPublisher.ALL_KEYS));
+    }
+
+    /**
+     * 失效通知的接收统计
+     */
+    public Map<String, Object> getInvalidationStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(invalidationPublisher.getStats());
+        stats.put("received", messagesReceived.sum());
+        stats.put("sequenceGaps", sequenceGaps.sum());
+        stats.put("resubscriptions", resubscriptions.sum());
+        stats.put("lagMeanMs", invalidationLag.mean(TimeUnit.MILLISECONDS));
+        stats.put("lagMaxMs", invalidationLag.max(TimeUnit.MILLISECONDS));
+        return stats;
+    }
+
+    /**
+     * 所有缓存的两级命中统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.getStats()));
+        return stats;
+    }
+}
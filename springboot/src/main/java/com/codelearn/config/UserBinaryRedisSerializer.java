@@ -0,0 +1,337 @@
+package com.codelearn.config;
+
+import com.codelearn.entity.User;
+import com.codelearn.service.UserCacheService;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 用户缓存的紧凑二进制序列化器
+ * 对User、List&lt;User&gt;、Optional&lt;User&gt;及包装它们的缓存条目使用二进制格式，
+ * 其他类型交给JSON序列化器处理。
+ *
+ * 格式：0x00（魔数，JSON不会以0x00开头） + 版本号 + 类型 + 数据
+ * User的每个字段写成 字段号/线路类型 + 值（类似protobuf）：
+ * - 新增字段使用新的字段号，旧版本读取时按线路类型跳过未知字段
+ * - 不再使用的字段号不复用
+ * 读取时不以魔数开头的数据按JSON解析，切换序列化方式前写入的缓存仍然可读
+ */
+public class UserBinaryRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = 0x00;
+    private static final byte VERSION = 1;
+
+    private static final byte TYPE_USER = 1;
+    private static final byte TYPE_USER_LIST = 2;
+    private static final byte TYPE_OPTIONAL = 3;
+    private static final byte TYPE_CACHE_ENTRY = 4;
+    private static final byte TYPE_NULL = 5;
+
+    /** 线路类型：变长整数 / 长度前缀的字节串 */
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_BYTES = 2;
+
+    private static final int FIELD_ID = 1;
+    private static final int FIELD_USERNAME = 2;
+    private static final int FIELD_EMAIL = 3;
+    private static final int FIELD_PASSWORD = 4;
+    private static final int FIELD_STATUS = 5;
+    private static final int FIELD_ROLE = 6;
+    private static final int FIELD_TOKEN_VERSION = 7;
+    private static final int FIELD_CREATED_AT = 8;
+    private static final int FIELD_UPDATED_AT = 9;
+
+    private final RedisSerializer<Object> fallback;
+
+    public UserBinaryRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (!isSupported(value)) {
+            return fallback.serialize(value);
+        }
+        Writer out = new Writer();
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        writeValue(out, value);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        Reader in = new Reader(bytes);
+        in.readByte();
+        int version = in.readByte();
+        if (version > VERSION) {
+            throw new SerializationException("不支持的用户缓存格式版本: " + version);
+        }
+        try {
+            return readValue(in);
+        } catch (SerializationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // 未知的角色名、超出范围的时间等损坏数据也按无法解码处理，缓存层会当作未命中而不是Redis故障
+            throw new SerializationException("用户缓存数据格式错误: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isSupported(Object value) {
+        if (value instanceof UserCacheService.CacheEntry entry) {
+            return entry.getValue() == null || isSupported(entry.getValue());
+        }
+        if (value instanceof Optional<?> optional) {
+            return optional.isEmpty() || optional.get() instanceof User;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().allMatch(User.class::isInstance);
+        }
+        return value instanceof User;
+    }
+
+    private static void writeValue(Writer out, Object value) {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof UserCacheService.CacheEntry entry) {
+            out.writeByte(TYPE_CACHE_ENTRY);
+            out.writeVarLong(entry.getLoadedAt());
+            out.writeVarLong(entry.getLoadMillis());
+            writeValue(out, entry.getValue());
+        } else if (value instanceof Optional<?> optional) {
+            out.writeByte(TYPE_OPTIONAL);
+            writeValue(out, optional.orElse(null));
+        } else if (value instanceof List<?> list) {
+            out.writeByte(TYPE_USER_LIST);
+            out.writeVarLong(list.size());
+            for (Object user : list) {
+                writeUser(out, (User) user);
+            }
+        } else {
+            out.writeByte(TYPE_USER);
+            writeUser(out, (User) value);
+        }
+    }
+
+    private static Object readValue(Reader in) {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_CACHE_ENTRY: {
+                long loadedAt = in.readVarLong();
+                long loadMillis = in.readVarLong();
+                return new UserCacheService.CacheEntry(readValue(in), loadedAt, loadMillis);
+            }
+            case TYPE_OPTIONAL:
+                return Optional.ofNullable(readValue(in));
+            case TYPE_USER_LIST: {
+                int size = in.readLength();
+                List<User> users = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    users.add(readUser(in));
+                }
+                return users;
+            }
+            case TYPE_USER:
+                return readUser(in);
+            default:
+                throw new SerializationException("未知的用户缓存数据类型: " + type);
+        }
+    }
+
+    /**
+     * User写成 字段数 + 若干字段，null字段不写
+     */
+    private static void writeUser(Writer out, User user) {
+        Writer fields = new Writer();
+        int count = 0;
+        count += fields.writeLongField(FIELD_ID, user.getId());
+        count += fields.writeStringField(FIELD_USERNAME, user.getUsername());
+        count += fields.writeStringField(FIELD_EMAIL, user.getEmail());
+        count += fields.writeStringField(FIELD_PASSWORD, user.getPassword());
+        count += fields.writeLongField(FIELD_STATUS, user.getStatus() == null ? null : user.getStatus().longValue());
+        count += fields.writeStringField(FIELD_ROLE, user.getRole() == null ? null : user.getRole().name());
+        count += fields.writeLongField(FIELD_TOKEN_VERSION,
+                user.getTokenVersion() == null ? null : user.getTokenVersion().longValue());
+        count += fields.writeTimeField(FIELD_CREATED_AT, user.getCreatedAt());
+        count += fields.writeTimeField(FIELD_UPDATED_AT, user.getUpdatedAt());
+        out.writeVarLong(count);
+        out.writeBytes(fields.toByteArray());
+    }
+
+    private static User readUser(Reader in) {
+        User user = new User();
+        int count = in.readLength();
+        for (int i = 0; i < count; i++) {
+            int key = (int) in.readVarLong();
+            int field = key >>> 3;
+            int wireType = key & 0x7;
+            switch (field) {
+                case FIELD_ID -> user.setId(in.readVarLong());
+                case FIELD_USERNAME -> user.setUsername(in.readString());
+                case FIELD_EMAIL -> user.setEmail(in.readString());
+                case FIELD_PASSWORD -> user.setPassword(in.readString());
+                case FIELD_STATUS -> user.setStatus((int) in.readVarLong());
+                case FIELD_ROLE -> user.setRole(User.UserRole.valueOf(in.readString()));
+                case FIELD_TOKEN_VERSION -> user.setTokenVersion((int) in.readVarLong());
+                case FIELD_CREATED_AT -> user.setCreatedAt(in.readTime());
+                case FIELD_UPDATED_AT -> user.setUpdatedAt(in.readTime());
+                default -> in.skip(wireType);  // 新版本写入的未知字段
+            }
+        }
+        return user;
+    }
+
+    /**
+     * 字节写入器：变长整数使用ZigZag编码，负数也能紧凑存储
+     */
+    private static class Writer {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+
+        void writeByte(int value) {
+            buffer.write(value);
+        }
+
+        void writeBytes(byte[] bytes) {
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        void writeVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            buffer.write((int) zigzag);
+        }
+
+        int writeLongField(int field, Long value) {
+            if (value == null) {
+                return 0;
+            }
+            writeVarLong((long) field << 3 | WIRE_VARINT);
+            writeVarLong(value);
+            return 1;
+        }
+
+        int writeStringField(int field, String value) {
+            if (value == null) {
+                return 0;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong((long) field << 3 | WIRE_BYTES);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+            return 1;
+        }
+
+        /**
+         * 时间写成长度前缀的两个变长整数：秒 + 纳秒（按UTC换算，不涉及时区）
+         */
+        int writeTimeField(int field, LocalDateTime value) {
+            if (value == null) {
+                return 0;
+            }
+            Writer time = new Writer();
+            time.writeVarLong(value.toEpochSecond(ZoneOffset.UTC));
+            time.writeVarLong(value.getNano());
+            byte[] bytes = time.toByteArray();
+            writeVarLong((long) field << 3 | WIRE_BYTES);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+            return 1;
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    private static class Reader {
+
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte readByte() {
+            if (position >= bytes.length) {
+                throw new SerializationException("用户缓存数据不完整");
+            }
+            return bytes[position++];
+        }
+
+        long readVarLong() {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new SerializationException("用户缓存数据格式错误");
+                }
+                b = readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        /**
+         * 读取长度或元素个数，超过剩余字节数的值说明数据已损坏（每个元素至少占一个字节）
+         */
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > bytes.length - position) {
+                throw new SerializationException("用户缓存数据不完整");
+            }
+            return (int) length;
+        }
+
+        String readString() {
+            int length = readLength();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        LocalDateTime readTime() {
+            int length = readLength();
+            int end = position + length;
+            long seconds = readVarLong();
+            int nanos = (int) readVarLong();
+            if (position > end) {
+                throw new SerializationException("用户缓存数据格式错误");
+            }
+            position = end;  // 忽略以后版本追加的内容
+            return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+        }
+
+        void skip(int wireType) {
+            if (wireType == WIRE_VARINT) {
+                readVarLong();
+            } else if (wireType == WIRE_BYTES) {
+                position += readLength();
+            } else {
+                throw new SerializationException("未知的线路类型: " + wireType);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.codelearn.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC配置
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final EndpointMetricsInterceptor endpointMetricsInterceptor;
+    private final SqlStatementMonitor sqlStatementMonitor;
+
+    @Value("${app.metrics.endpoints.enabled:true}")
+    private boolean endpointMetricsEnabled;
+
+    @Value("${app.sql.monitor.enabled:true}")
+    private boolean sqlMonitorEnabled;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (endpointMetricsEnabled) {
+            registry.addInterceptor(endpointMetricsInterceptor).addPathPatterns("/api/**");
+        }
+        if (sqlMonitorEnabled) {
+            registry.addInterceptor(sqlStatementMonitor).addPathPatterns("/api/**");
+        }
+    }
+}
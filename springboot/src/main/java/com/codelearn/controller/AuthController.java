@@ -3,13 +3,18 @@ package com.codelearn.controller;
 import com.codelearn.common.AuthRequest;
 import com.codelearn.common.AuthResponse;
 import com.codelearn.common.ResponseResult;
+import com.codelearn.config.BoundedPasswordEncoder;
 import com.codelearn.config.JwtUtils;
 import com.codelearn.entity.User;
 import com.codelearn.service.UserDetailsServiceImpl;
 import com.codelearn.service.UserService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -37,7 +42,8 @@ public class AuthController {
      * 用户登录
      */
     @PostMapping("/login")
-    public ResponseResult<AuthResponse> login(@Valid @RequestBody AuthRequest authRequest) {
+    public ResponseResult<AuthResponse> login(@Valid @RequestBody AuthRequest authRequest,
+                                              HttpServletResponse response) {
         log.info("用户登录请求: {}", authRequest.getUsername());
         
         try {
@@ -69,6 +75,9 @@ public class AuthController {
             log.info("用户登录成功: {}", authRequest.getUsername());
             return ResponseResult.success("登录成功", authResponse);
             
+        } catch (BoundedPasswordEncoder.HashingRejectedException e) {
+            log.warn("用户登录被限流: {}, 原因: {}", authRequest.getUsername(), e.getMessage());
+            return overloaded(e, response);
         } catch (Exception e) {
             log.error("用户登录失败: {}", e.getMessage());
             return ResponseResult.badRequest("用户名或密码错误");
@@ -79,7 +88,7 @@ public class AuthController {
      * 用户注册
      */
     @PostMapping("/register")
-    public ResponseResult<String> register(@Valid @RequestBody User user) {
+    public ResponseResult<String> register(@Valid @RequestBody User user, HttpServletResponse response) {
         log.info("用户注册请求: {}", user.getUsername());
         
         try {
@@ -107,6 +116,9 @@ public class AuthController {
             log.info("用户注册成功: {}", user.getUsername());
             return ResponseResult.success("注册成功");
             
+        } catch (BoundedPasswordEncoder.HashingRejectedException e) {
+            log.warn("用户注册被限流: {}, 原因: {}", user.getUsername(), e.getMessage());
+            return overloaded(e, response);
         } catch (Exception e) {
             log.error("用户注册失败: {}", e.getMessage());
             return ResponseResult.error("注册失败: " + e.getMessage());
@@ -153,9 +165,9 @@ public class AuthController {
             if (token != null && token.startsWith("Bearer ")) {
                 String jwt = token.substring(7);
                 
-                if (jwtUtils.validateJwtToken(jwt)) {
-                    String username = jwtUtils.getUsernameFromJwtToken(jwt);
-                    return ResponseResult.success("Token有效", username);
+                Claims claims = jwtUtils.verifyJwtToken(jwt);
+                if (claims != null) {
+                    return ResponseResult.success("Token有效", claims.getSubject());
                 }
             }
             
@@ -166,4 +178,16 @@ public class AuthController {
             return ResponseResult.unauthorized("Token验证失败");
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 密码哈希线程池繁忙时快速失败
+     * 队列已满返回429，等待超时返回503，均带Retry-After提示客户端稍后重试
+     */
+    private <T> ResponseResult<T> overloaded(BoundedPasswordEncoder.HashingRejectedException e,
+                                             HttpServletResponse response) {
+        HttpStatus status = e.isTimeout() ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return ResponseResult.error(status.value(), "服务繁忙，请稍后重试");
+    }
+}
@@ -0,0 +1,209 @@
+package com.codelearn.controller;
+
+import com.codelearn.common.ResponseResult;
+import com.codelearn.service.ProfilingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 性能分析控制器（管理员专用）
+ * 基于JFR的按需录制、持续录制导出和录制摘要
+ */
+@RestController
+@RequestMapping("/api/system/admin/profiling")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+public class ProfilingController {
+
+    private static final int MAX_TOP = 100;
+
+    private final ProfilingService profilingService;
+
+    /**
+     * 列出持续录制和所有按需录制
+     * GET /api/system/admin/profiling/recordings
+     */
+    @GetMapping("/recordings")
+    public ResponseResult<List<Map<String, Object>>> listRecordings() {
+        return ResponseResult.success("获取录制列表成功", profilingService.list());
+    }
+
+    /**
+     * 启动按需录制
+     * POST /api/system/admin/profiling/recordings?profile=profile&duration=60s
+     */
+    @PostMapping("/recordings")
+    public ResponseResult<Map<String, Object>> startRecording(
+            @RequestParam(defaultValue = "profile") String profile,
+            @RequestParam(defaultValue = "60s") String duration) {
+        log.info("管理员启动JFR录制，配置: {}, 时长: {}", profile, duration);
+        try {
+            Duration parsed = DurationStyle.detectAndParse(duration);
+            return ResponseResult.success("录制已启动", profilingService.start(profile, parsed));
+        } catch (IllegalArgumentException e) {
+            return ResponseResult.badRequest(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseResult.error(409, e.getMessage());
+        } catch (Exception e) {
+            log.error("启动JFR录制失败", e);
+            return ResponseResult.error("启动录制失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 提前停止录制
+     * POST /api/system/admin/profiling/recordings/{id}/stop
+     */
+    @PostMapping("/recordings/{id}/stop")
+    public ResponseResult<Map<String, Object>> stopRecording(@PathVariable long id) {
+        return profilingService.stop(id)
+                .map(info -> ResponseResult.success("录制已停止", info))
+                .orElseGet(() -> ResponseResult.notFound("录制不存在"));
+    }
+
+    /**
+     * 删除录制及其文件
+     * DELETE /api/system/admin/profiling/recordings/{id}
+     */
+    @DeleteMapping("/recordings/{id}")
+    public ResponseResult<Void> deleteRecording(@PathVariable long id) {
+        return profilingService.delete(id)
+                ? ResponseResult.success("录制已删除", null)
+                : ResponseResult.notFound("录制不存在");
+    }
+
+    /**
+     * 下载已结束的录制文件（用JDK Mission Control打开）
+     * GET /api/system/admin/profiling/recordings/{id}/file
+     */
+    @GetMapping("/recordings/{id}/file")
+    public ResponseEntity<StreamingResponseBody> downloadRecording(@PathVariable long id) {
+        Optional<Path> file;
+        try {
+            file = profilingService.file(id);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return file.map(path -> download(path, "recording-" + id + ".jfr", false))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 已结束录制的摘要：热点方法、分配位置、锁竞争
+     * GET /api/system/admin/profiling/recordings/{id}/summary?top=10
+     */
+    @GetMapping("/recordings/{id}/summary")
+    public ResponseResult<Map<String, Object>> recordingSummary(@PathVariable long id,
+                                                                @RequestParam(defaultValue = "10") int top) {
+        try {
+            Optional<Path> file = profilingService.file(id);
+            if (file.isEmpty()) {
+                return ResponseResult.notFound("录制不存在");
+            }
+            return ResponseResult.success("解析录制成功", profilingService.summarize(file.get(), clampTop(top)));
+        } catch (IllegalStateException e) {
+            return ResponseResult.error(409, e.getMessage());
+        } catch (Exception e) {
+            log.error("解析JFR录制失败，ID: " + id, e);
+            return ResponseResult.error("解析录制失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 导出持续录制最近N分钟的数据
+     * GET /api/system/admin/profiling/continuous/dump?minutes=5
+     */
+    @GetMapping("/continuous/dump")
+    public ResponseEntity<StreamingResponseBody> dumpContinuous(@RequestParam(defaultValue = "5") int minutes) {
+        if (minutes <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("管理员导出JFR持续录制，最近 {} 分钟", minutes);
+        try {
+            Path file = profilingService.dumpContinuous(Duration.ofMinutes(minutes));
+            return download(file, "continuous-" + minutes + "m.jfr", true);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            log.error("导出JFR持续录制失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * 持续录制最近N分钟的摘要
+     * GET /api/system/admin/profiling/continuous/summary?minutes=5&top=10
+     */
+    @GetMapping("/continuous/summary")
+    public ResponseResult<Map<String, Object>> continuousSummary(@RequestParam(defaultValue = "5") int minutes,
+                                                                 @RequestParam(defaultValue = "10") int top) {
+        if (minutes <= 0) {
+            return ResponseResult.badRequest("minutes必须大于0");
+        }
+        Path file = null;
+        try {
+            file = profilingService.dumpContinuous(Duration.ofMinutes(minutes));
+            return ResponseResult.success("解析录制成功", profilingService.summarize(file, clampTop(top)));
+        } catch (IllegalStateException e) {
+            return ResponseResult.error(409, e.getMessage());
+        } catch (Exception e) {
+            log.error("解析JFR持续录制失败", e);
+            return ResponseResult.error("解析录制失败: " + e.getMessage());
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(Path file, String filename, boolean deleteAfter) {
+        StreamingResponseBody body = outputStream -> {
+            try {
+                Files.copy(file, outputStream);
+            } finally {
+                if (deleteAfter) {
+                    deleteQuietly(file);
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (Exception e) {
+            log.warn("删除临时录制文件失败: {}", e.getMessage());
+        }
+    }
+
+    private static int clampTop(int top) {
+        return Math.max(1, Math.min(top, MAX_TOP));
+    }
+}
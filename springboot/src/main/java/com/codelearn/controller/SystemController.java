@@ -1,9 +1,19 @@
 package com.codelearn.controller;
 
 import com.codelearn.common.ResponseResult;
+import com.codelearn.config.EndpointMetricsInterceptor;
+import com.codelearn.config.HealthMonitor;
+import com.codelearn.config.HibernateCacheSync;
+import com.codelearn.config.ReadWriteRoutingDataSource;
+import com.codelearn.config.RedisCircuitBreaker;
+import com.codelearn.config.SqlStatementMonitor;
+import com.codelearn.config.ThreadingMode;
+import com.codelearn.config.TwoLevelCacheManager;
+import com.codelearn.service.UserCacheService;
+import com.codelearn.service.UserNegativeCache;
+import com.codelearn.service.UserRequestLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -29,6 +39,36 @@ public class SystemController {
     @Autowired(required = false)
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+    
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+    
+    @Autowired
+    private UserCacheService userCacheService;
+    
+    @Autowired
+    private UserNegativeCache userNegativeCache;
+    
+    @Autowired
+    private UserRequestLoader userRequestLoader;
+    
+    @Autowired
+    private HibernateCacheSync hibernateCacheSync;
+
+    @Autowired
+    private ThreadingMode threadingMode;
+
+    @Autowired
+    private HealthMonitor healthMonitor;
+
+    @Autowired
+    private EndpointMetricsInterceptor endpointMetricsInterceptor;
+
+    @Autowired
+    private SqlStatementMonitor sqlStatementMonitor;
+    
     @Value("${spring.data.redis.host:localhost}")
     private String redisHost;
     
@@ -46,58 +86,15 @@ public class SystemController {
 
     /**
      * 健康检查接口
-     * 检查应用程序和数据库连接状态
+     * 返回后台探测的最近结果（见HealthMonitor），不在请求中访问数据库、Redis和磁盘
      */
     @GetMapping("/health")
     public ResponseResult<Map<String, Object>> health() {
-        try {
-            Map<String, Object> healthInfo = new HashMap<>();
-            
-            // 基本状态
-            healthInfo.put("status", "UP");
-            healthInfo.put("timestamp", LocalDateTime.now());
-            
-            // 组件状态
-            Map<String, Object> components = new HashMap<>();
-            
-            // 检查数据库连接
-            try (Connection connection = dataSource.getConnection()) {
-                if (connection.isValid(1)) {
-                    components.put("database", Map.of("status", "UP"));
-                } else {
-                    components.put("database", Map.of("status", "DOWN"));
-                }
-            } catch (Exception e) {
-                components.put("database", Map.of("status", "DOWN", "error", e.getMessage()));
-            }
-            
-            // 磁盘空间检查（简化版）
-            try {
-                java.io.File file = new java.io.File(".");
-                long freeSpace = file.getFreeSpace();
-                long totalSpace = file.getTotalSpace();
-                
-                components.put("diskSpace", Map.of(
-                    "status", freeSpace > 1024 * 1024 * 100 ? "UP" : "LOW", // 100MB阈值
-                    "free", freeSpace,
-                    "total", totalSpace
-                ));
-            } catch (Exception e) {
-                components.put("diskSpace", Map.of("status", "UNKNOWN"));
-            }
-            
-            healthInfo.put("components", components);
-            
-            return ResponseResult.success("健康检查完成", healthInfo);
-            
-        } catch (Exception e) {
-            Map<String, Object> errorInfo = Map.of(
-                "status", "DOWN",
-                "timestamp", LocalDateTime.now(),
-                "error", e.getMessage()
-            );
-            return ResponseResult.error(500, "健康检查失败");
-        }
+        Map<String, Object> healthInfo = new HashMap<>();
+        healthInfo.put("status", healthMonitor.getOverallStatus());
+        healthInfo.put("timestamp", LocalDateTime.now());
+        healthInfo.put("components", healthMonitor.getComponents());
+        return ResponseResult.success("健康检查完成", healthInfo);
     }
 
     /**
@@ -118,6 +115,7 @@ public class SystemController {
         javaInfo.put("version", System.getProperty("java.version"));
         javaInfo.put("vendor", System.getProperty("java.vendor"));
         javaInfo.put("runtime", System.getProperty("java.runtime.name"));
+        javaInfo.put("threads", threadingMode.getName());
         
         // 系统信息
         Map<String, Object> osInfo = new HashMap<>();
@@ -162,6 +160,9 @@ public class SystemController {
                 dbInfo.put("isValid", connection.isValid(1));
                 dbInfo.put("timestamp", LocalDateTime.now());
             }
+            if (dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)) {
+                dbInfo.put("routing", dataSource.unwrap(ReadWriteRoutingDataSource.class).getStats());
+            }
             
             return ResponseResult.success("获取数据库信息成功", dbInfo);
             
@@ -185,23 +186,11 @@ public class SystemController {
             redisInfo.put("timeout", redisTimeout);
             redisInfo.put("maxActive", redisMaxActive);
             redisInfo.put("timestamp", LocalDateTime.now());
+            redisInfo.put("circuitBreaker", redisCircuitBreaker.getStats());
             
-            // 连接状态检查
-            if (redisTemplate != null) {
-                try {
-                    RedisConnection connection = redisTemplate.getConnectionFactory().getConnection();
-                    String pong = connection.ping();
-                    redisInfo.put("status", "UP");
-                    redisInfo.put("ping", pong);
-                    connection.close();
-                } catch (Exception e) {
-                    redisInfo.put("status", "DOWN");
-                    redisInfo.put("error", e.getMessage());
-                }
-            } else {
-                redisInfo.put("status", "NOT_CONFIGURED");
-                redisInfo.put("message", "Redis未配置或未启用");
-            }
+            // 连接状态取后台探测的最近结果（熔断打开时探测不再连接Redis，由熔断器后台探测）
+            HealthMonitor.Snapshot snapshot = healthMonitor.getSnapshot(HealthMonitor.REDIS);
+            redisInfo.putAll(snapshot.toMap());
             
             return ResponseResult.success("获取Redis信息成功", redisInfo);
             
@@ -210,6 +199,38 @@ public class SystemController {
         }
     }
 
+    /**
+     * 获取缓存统计信息（仅管理员）
+     * 包含每个缓存一级（本地）和二级（Redis）的命中/未命中次数
+     * GET /api/system/admin/cache
+     */
+    @GetMapping("/admin/cache")
+    public ResponseResult<Map<String, Object>> cache() {
+        Map<String, Object> cacheInfo = new HashMap<>();
+        cacheInfo.put("caches", cacheManager.getStats());
+        cacheInfo.put("invalidation", cacheManager.getInvalidationStats());
+        cacheInfo.put("loader", userCacheService.getStats());
+        cacheInfo.put("negative", userNegativeCache.getStats());
+        cacheInfo.put("requestLoader", userRequestLoader.getStats());
+        cacheInfo.put("hibernate", hibernateCacheSync.getStats());
+        cacheInfo.put("timestamp", LocalDateTime.now());
+        return ResponseResult.success("获取缓存信息成功", cacheInfo);
+    }
+
+    /**
+     * 获取接口性能统计（仅管理员）
+     * 每个控制器方法的调用次数、耗时分位数和每个请求的内存分配，以及SQL语句数、慢SQL和疑似N+1查询
+     * GET /api/system/admin/metrics
+     */
+    @GetMapping("/admin/metrics")
+    public ResponseResult<Map<String, Object>> metrics() {
+        Map<String, Object> metricsInfo = new HashMap<>();
+        metricsInfo.put("endpoints", endpointMetricsInterceptor.getStats());
+        metricsInfo.put("sql", sqlStatementMonitor.getStats());
+        metricsInfo.put("timestamp", LocalDateTime.now());
+        return ResponseResult.success("获取接口统计成功", metricsInfo);
+    }
+
     /**
      * 获取SpringBoot功能特性
      */
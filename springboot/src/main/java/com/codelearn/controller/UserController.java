@@ -1,20 +1,32 @@
 package com.codelearn.controller;
 
+import com.codelearn.common.CursorPage;
 import com.codelearn.common.ResponseResult;
+import com.codelearn.common.UserImportResult;
 import com.codelearn.entity.User;
+import com.codelearn.service.UserExportService;
+import com.codelearn.service.UserImportService;
 import com.codelearn.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 用户控制器
@@ -29,6 +41,11 @@ import java.util.Optional;
 public class UserController {
     
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    
+    @Value("${app.users.max-batch-ids:100}")
+    private int maxBatchIds;
     
     /**
      * 获取所有用户
@@ -46,6 +63,25 @@ public class UserController {
         }
     }
     
+    /**
+     * 根据ID批量获取用户（按请求顺序返回，不存在的ID跳过）
+     * GET /api/users?ids=1,2,3
+     */
+    @GetMapping(params = "ids")
+    public ResponseResult<List<User>> getUsersByIds(@RequestParam List<Long> ids) {
+        log.info("请求批量获取用户，ID数: {}", ids.size());
+        if (ids.size() > maxBatchIds) {
+            return ResponseResult.badRequest("一次最多查询" + maxBatchIds + "个用户");
+        }
+        try {
+            List<User> users = userService.getUsersByIds(ids);
+            return ResponseResult.success("获取用户列表成功", users);
+        } catch (Exception e) {
+            log.error("批量获取用户失败", e);
+            return ResponseResult.error("获取用户列表失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 根据ID获取用户
      * GET /api/users/{id}
@@ -143,6 +179,63 @@ public class UserController {
         }
     }
     
+    /**
+     * 分页获取用户（Slice模式，不统计总数）
+     * GET /api/users/slice?page=0&size=10&sortBy=id&sortDir=asc
+     */
+    @GetMapping("/slice")
+    public ResponseResult<Slice<User>> getUsersSlice(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+        
+        log.info("请求分页获取用户（Slice），页码: {}, 大小: {}, 排序: {} {}", page, size, sortBy, sortDir);
+        
+        try {
+            Sort sort = sortDir.equalsIgnoreCase("desc") ? 
+                       Sort.by(sortBy).descending() : 
+                       Sort.by(sortBy).ascending();
+            
+            Pageable pageable = PageRequest.of(page, size, sort);
+            Slice<User> users = userService.getUsersSlice(pageable);
+            
+            return ResponseResult.success("分页获取用户成功", users);
+        } catch (Exception e) {
+            log.error("分页获取用户失败", e);
+            return ResponseResult.error("分页获取用户失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 游标分页获取用户
+     * GET /api/users/cursor?sortBy=id&sortDir=asc&size=10&cursor=xxx
+     * 首页不传cursor，之后传入上一页返回的nextCursor
+     */
+    @GetMapping("/cursor")
+    public ResponseResult<CursorPage<User>> getUsersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+        
+        log.info("请求游标分页获取用户，大小: {}, 排序: {} {}", size, sortBy, sortDir);
+        
+        if (size < 1 || size > 1000) {
+            return ResponseResult.badRequest("每页大小必须在1-1000之间");
+        }
+        
+        try {
+            CursorPage<User> users = userService.getUsersByCursor(sortBy, sortDir, cursor, size);
+            return ResponseResult.success("分页获取用户成功", users);
+        } catch (IllegalArgumentException e) {
+            return ResponseResult.badRequest(e.getMessage());
+        } catch (Exception e) {
+            log.error("游标分页获取用户失败", e);
+            return ResponseResult.error("分页获取用户失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 搜索用户
      * GET /api/users/search?keyword=john&page=0&size=10
@@ -215,6 +308,75 @@ public class UserController {
         }
     }
     
+    /**
+     * 管理员专用 - 批量导入用户
+     * POST /api/users/admin/import
+     * Content-Type为text/csv时按CSV解析（首行为表头），否则按JSON数组解析；请求体流式读取
+     */
+    @PostMapping("/admin/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseResult<UserImportResult> importUsers(HttpServletRequest request) {
+        log.info("管理员请求批量导入用户，Content-Type: {}", request.getContentType());
+        try {
+            String contentType = request.getContentType();
+            UserImportResult result = contentType != null && contentType.startsWith("text/csv")
+                    ? userImportService.importCsv(request.getInputStream())
+                    : userImportService.importJson(request.getInputStream());
+            return ResponseResult.success("批量导入完成", result);
+        } catch (IllegalArgumentException e) {
+            return ResponseResult.badRequest(e.getMessage());
+        } catch (Exception e) {
+            log.error("批量导入用户失败", e);
+            return ResponseResult.error("批量导入用户失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 管理员专用 - 流式导出用户
+     * GET /api/users/admin/export?format=ndjson&fields=id,username,email&gzip=true
+     * 逐行写出响应，不在内存中构建完整的用户列表；format支持ndjson和csv
+     */
+    @GetMapping("/admin/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        log.info("管理员请求导出用户，格式: {}, 字段: {}, gzip: {}", format, fields, gzip);
+        
+        if (!"ndjson".equalsIgnoreCase(format) && !"csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<String> exportFields;
+        try {
+            exportFields = userExportService.resolveFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        boolean csv = "csv".equalsIgnoreCase(format);
+        String filename = "users." + (csv ? "csv" : "ndjson") + (gzip ? ".gz" : "");
+        MediaType mediaType = gzip ? MediaType.parseMediaType("application/gzip")
+                : csv ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+        
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 8192);
+                userExportService.export(gzipStream, format, exportFields);
+                gzipStream.finish();
+            } else {
+                userExportService.export(outputStream, format, exportFields);
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+    
     /**
      * 管理员专用 - 禁用用户
      * PUT /api/users/admin/{id}/disable
@@ -224,15 +386,10 @@ public class UserController {
     public ResponseResult<String> disableUser(@PathVariable Long id) {
         log.info("管理员请求禁用用户，ID: {}", id);
         try {
-            Optional<User> userOpt = userService.getUserById(id);
-            if (userOpt.isEmpty()) {
+            if (userService.updateStatus(id, 0).isEmpty()) {
                 return ResponseResult.notFound("用户不存在");
             }
             
-            User user = userOpt.get();
-            user.setStatus(0);
-            userService.updateUser(user);
-            
             return ResponseResult.success("用户已禁用");
         } catch (Exception e) {
             log.error("禁用用户失败，ID: " + id, e);
@@ -249,15 +406,10 @@ public class UserController {
     public ResponseResult<String> enableUser(@PathVariable Long id) {
         log.info("管理员请求启用用户，ID: {}", id);
         try {
-            Optional<User> userOpt = userService.getUserById(id);
-            if (userOpt.isEmpty()) {
+            if (userService.updateStatus(id, 1).isEmpty()) {
                 return ResponseResult.notFound("用户不存在");
             }
             
-            User user = userOpt.get();
-            user.setStatus(1);
-            userService.updateUser(user);
-            
             return ResponseResult.success("用户已启用");
         } catch (Exception e) {
             log.error("启用用户失败，ID: " + id, e);
@@ -1,5 +1,6 @@
 package com.codelearn.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -7,6 +8,7 @@ import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -18,18 +20,27 @@ import java.time.LocalDateTime;
  * 演示SpringBoot JPA的基本功能
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_created_at_id", columnList = "created_at, id")  // 支持按创建时间的游标分页
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @EntityListeners(AuditingEntityListener.class)  // 启用JPA审计
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)  // Hibernate二级缓存
 public class User {
     
+    /** Hibernate二级缓存区域名 */
+    public static final String CACHE_REGION = "user-entity";
+    
     /**
-     * 主键，自增
+     * 主键，序列生成
+     * 使用pooled优化器每次预分配50个ID，使Hibernate能够批量插入（IDENTITY会禁用JDBC批处理）
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
     
     /**
@@ -69,6 +80,14 @@ public class User {
     @Column(nullable = false, length = 20)
     private UserRole role = UserRole.USER;
     
+    /**
+     * token版本号：禁用用户或变更角色时递增，使之前签发的JWT失效
+     * 由服务端维护，不参与JSON序列化
+     */
+    @JsonIgnore
+    @Column(nullable = false)
+    private Integer tokenVersion = 0;
+    
     /**
      * 创建时间，自动填充
      */
@@ -1,15 +1,21 @@
 package com.codelearn.repository;
 
 import com.codelearn.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 用户仓库接口
@@ -17,12 +23,14 @@ import java.util.Optional;
  * 演示Spring Data JPA的查询方法
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     
     /**
      * 根据用户名查找用户
      * Spring Data JPA 会根据方法名自动生成查询
+     * 查询结果缓存：users表有写入时自动失效
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
     
     /**
@@ -45,26 +53,71 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByEmail(String email);
     
+    /**
+     * 查询已存在的用户名（批量导入时每批一次IN查询）
+     */
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+    
+    /**
+     * 查询已存在的邮箱（批量导入时每批一次IN查询）
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
     /**
      * 根据状态查找用户列表
      */
     List<User> findByStatus(Integer status);
     
     /**
-     * 根据角色查找用户列表
+     * 根据角色查找用户列表（查询结果缓存）
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<User> findByRole(User.UserRole role);
     
+    /**
+     * 统计指定状态的用户数
+     */
+    long countByStatus(Integer status);
+    
+    /**
+     * 统计指定角色的用户数
+     */
+    long countByRole(User.UserRole role);
+    
     /**
      * 根据用户名模糊查询（分页）
      * 方法名查询：包含指定字符串的用户名
      */
     Page<User> findByUsernameContainingIgnoreCase(String username, Pageable pageable);
     
+    /**
+     * 分页查询但返回Slice
+     * 只多读取一条记录判断是否有下一页，不执行COUNT查询
+     */
+    @Query("SELECT u FROM User u")
+    Slice<User> findAllAsSlice(Pageable pageable);
+    
+    /**
+     * 以流的方式按ID顺序读取全部用户（用于导出）
+     * 必须在只读事务中消费并关闭；fetchSize提示驱动分批拉取结果，
+     * 只读提示让Hibernate不为实体保存快照，忽略二级缓存避免全表导出挤掉缓存中的热点用户。
+     * 注意：MySQL驱动需在URL中加 useCursorFetch=true 才会按fetchSize分批读取
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAll();
+    
     /**
      * 使用@Query注解自定义查询
-     * 查找活跃用户（状态为1）
+     * 查找活跃用户（状态为1，查询结果缓存）
      */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT u FROM User u WHERE u.status = 1")
     List<User> findActiveUsers();
     
@@ -82,6 +135,42 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query(value = "SELECT COUNT(*) FROM users", nativeQuery = true)
     Long countTotalUsers();
     
+    /**
+     * 按状态分组统计用户数：[status, count]
+     */
+    @Query("SELECT u.status, COUNT(u) FROM User u GROUP BY u.status")
+    List<Object[]> countGroupByStatus();
+    
+    /**
+     * 按角色分组统计用户数：[role, count]
+     */
+    @Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    List<Object[]> countGroupByRole();
+    
+    /**
+     * 查询用户当前的token版本号（只取一列，不加载整个实体）
+     */
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
+    
+    /**
+     * 只查询搜索索引需要的字段：[id, username, email]
+     */
+    @Query("SELECT u.id, u.username, u.email FROM User u")
+    List<Object[]> findSearchFields();
+    
+    /**
+     * 查询单个用户的搜索字段（其他实例变更该用户后同步搜索索引），用户不存在时为空
+     */
+    @Query("SELECT u.id, u.username, u.email FROM User u WHERE u.id = :id")
+    List<Object[]> findSearchFieldsById(@Param("id") Long id);
+    
+    /**
+     * 只查询所有用户名（用于构建用户名布隆过滤器）
+     */
+    @Query("SELECT u.username FROM User u")
+    List<String> findAllUsernames();
+    
     /**
      * 复杂查询：根据用户名或邮箱模糊搜索用户
      */
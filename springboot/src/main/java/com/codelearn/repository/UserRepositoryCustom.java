@@ -0,0 +1,24 @@
+package com.codelearn.repository;
+
+import com.codelearn.entity.User;
+
+import java.util.List;
+
+/**
+ * 用户仓库自定义查询接口
+ * 提供方法名查询和@Query难以表达的动态查询
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * 键集（seek）分页查询
+     * 按 (sortKey, id) 排序，从上一页最后一条记录之后开始读取，不使用OFFSET
+     *
+     * @param sortKey   排序字段：id、username、email、createdAt
+     * @param ascending 是否升序
+     * @param lastValue 上一页最后一条记录的排序字段值，首页为null
+     * @param lastId    上一页最后一条记录的ID，首页为null
+     * @param limit     最多返回的记录数
+     */
+    List<User> findPageAfter(String sortKey, boolean ascending, Comparable<?> lastValue, Long lastId, int limit);
+}
@@ -0,0 +1,58 @@
+package com.codelearn.repository;
+
+import com.codelearn.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.List;
+
+/**
+ * 用户仓库自定义查询实现
+ * Spring Data JPA会按“接口名+Impl”的约定自动发现并组合到UserRepository中
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<User> findPageAfter(String sortKey, boolean ascending, Comparable<?> lastValue, Long lastId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+
+        Path<Long> id = root.get("id");
+        boolean sortById = "id".equals(sortKey);
+
+        if (lastId != null) {
+            Predicate afterId = ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+            if (sortById) {
+                query.where(afterId);
+            } else {
+                // (key > v) OR (key = v AND id > lastId)，降序时方向相反
+                Expression<Comparable> key = root.get(sortKey);
+                Comparable value = lastValue;
+                Predicate afterKey = ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+                query.where(cb.or(afterKey, cb.and(cb.equal(key, value), afterId)));
+            }
+        }
+
+        if (sortById) {
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            Path<?> key = root.get(sortKey);
+            query.orderBy(ascending ? cb.asc(key) : cb.desc(key), ascending ? cb.asc(id) : cb.desc(id));
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
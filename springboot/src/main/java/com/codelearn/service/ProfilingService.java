@@ -0,0 +1,342 @@
+package com.codelearn.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JFR性能分析服务
+ * - 持续录制：应用启动后以低开销的default配置一直录制，只保留最近一段时间，出现延迟尖刺时导出最近N分钟
+ * - 按需录制：管理员选择配置（default/profile）和时长启动，到时自动停止并写入文件，之后可下载或删除
+ * - 摘要：解析录制文件，统计热点方法（CPU采样）、内存分配位置和锁竞争
+ *
+ * 录制文件写在 app.profiling.directory 下，按需录制的数量有上限，删除录制时一并删除文件
+ */
+@Service
+@Slf4j
+public class ProfilingService {
+
+    /** 可选的录制配置：default开销约1%，profile采样更密、开销约2% */
+    public static final Set<String> PROFILES = Set.of("default", "profile");
+
+    private static final String CONTINUOUS_NAME = "continuous";
+
+    @Value("${app.profiling.directory:${java.io.tmpdir}/codelearn-jfr}")
+    private Path directory;
+
+    @Value("${app.profiling.max-duration:10m}")
+    private Duration maxDuration;
+
+    @Value("${app.profiling.max-recordings:5}")
+    private int maxRecordings;
+
+    @Value("${app.profiling.continuous.enabled:true}")
+    private boolean continuousEnabled;
+
+    @Value("${app.profiling.continuous.max-age:30m}")
+    private Duration continuousMaxAge;
+
+    @Value("${app.profiling.continuous.max-size:100MB}")
+    private DataSize continuousMaxSize;
+
+    /** 按需录制，按录制ID */
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+
+    private volatile Recording continuous;
+
+    /**
+     * 应用就绪后启动持续录制
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startContinuous() {
+        if (!continuousEnabled) {
+            return;
+        }
+        try {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName(CONTINUOUS_NAME);
+            recording.setToDisk(true);
+            recording.setMaxAge(continuousMaxAge);
+            recording.setMaxSize(continuousMaxSize.toBytes());
+            recording.start();
+            continuous = recording;
+            log.info("JFR持续录制已启动，保留最近 {}（最多 {}）", continuousMaxAge, continuousMaxSize);
+        } catch (IOException | ParseException | RuntimeException e) {
+            log.warn("JFR持续录制启动失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        recordings.values().forEach(Recording::close);
+        recordings.clear();
+        if (continuous != null) {
+            continuous.close();
+        }
+    }
+
+    /**
+     * 启动按需录制，到达时长后自动停止并写入文件
+     *
+     * @throws IllegalArgumentException 配置名或时长不合法
+     * @throws IllegalStateException    录制数量已达上限
+     */
+    public synchronized Map<String, Object> start(String profile, Duration duration) throws IOException {
+        if (!PROFILES.contains(profile)) {
+            throw new IllegalArgumentException("不支持的录制配置: " + profile + "，可选: " + PROFILES);
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("录制时长必须大于0且不超过 " + maxDuration);
+        }
+        if (recordings.size() >= maxRecordings) {
+            throw new IllegalStateException("录制数量已达上限 " + maxRecordings + "，请先删除不需要的录制");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profile);
+        } catch (ParseException e) {
+            throw new IllegalStateException("读取录制配置失败: " + e.getMessage(), e);
+        }
+        Files.createDirectories(directory);
+        Recording recording = new Recording(configuration);
+        recording.setName(profile + "-" + Instant.now().toEpochMilli());
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        recording.setDestination(directory.resolve(recording.getName() + ".jfr"));
+        recording.start();
+        recordings.put(recording.getId(), recording);
+        log.info("JFR录制已启动，ID: {}, 配置: {}, 时长: {}", recording.getId(), profile, duration);
+        return describe(recording);
+    }
+
+    /**
+     * 提前停止录制，数据写入文件
+     */
+    public Optional<Map<String, Object>> stop(long id) {
+        return find(id).map(recording -> {
+            if (recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED) {
+                recording.stop();
+                log.info("JFR录制已停止，ID: {}", id);
+            }
+            return describe(recording);
+        });
+    }
+
+    /**
+     * 删除录制及其文件
+     */
+    public boolean delete(long id) {
+        Recording recording = recordings.remove(id);
+        if (recording == null) {
+            return false;
+        }
+        Path file = recording.getDestination();
+        recording.close();
+        try {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("删除JFR录制文件失败: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (continuous != null) {
+            result.add(describe(continuous));
+        }
+        recordings.values().stream()
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .map(ProfilingService::describe)
+                .forEach(result::add);
+        return result;
+    }
+
+    /**
+     * 已结束录制的文件（到时自动停止的录制写入文件后状态为CLOSED）
+     *
+     * @throws IllegalStateException 录制仍在进行
+     */
+    public Optional<Path> file(long id) {
+        return find(id).map(recording -> {
+            RecordingState state = recording.getState();
+            if (state != RecordingState.STOPPED && state != RecordingState.CLOSED) {
+                throw new IllegalStateException("录制尚未结束，当前状态: " + state);
+            }
+            Path file = recording.getDestination();
+            if (file == null || !Files.exists(file)) {
+                throw new IllegalStateException("录制文件不存在");
+            }
+            return file;
+        });
+    }
+
+    /**
+     * 把持续录制最近一段时间的数据导出到临时文件，调用方用完后负责删除
+     *
+     * @throws IllegalStateException 持续录制未启用
+     */
+    public Path dumpContinuous(Duration last) throws IOException {
+        Recording recording = continuous;
+        if (recording == null) {
+            throw new IllegalStateException("JFR持续录制未启用");
+        }
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, CONTINUOUS_NAME + "-", ".jfr");
+        // 复制一份并停止，只导出最近last时长的数据，持续录制本身不受影响
+        try (Recording copy = recording.copy(true)) {
+            copy.setMaxAge(last);
+            copy.dump(file);
+        }
+        return file;
+    }
+
+    /**
+     * 解析录制文件，统计热点方法、内存分配位置和锁竞争，各取前top项
+     * - 热点方法：CPU采样中位于栈顶的方法
+     * - 分配位置：分配采样中第一个非JDK的栈帧（栈顶往往是JDK内部的数组复制等），按采样估算的字节数统计
+     * - 锁竞争：进入synchronized等待（JavaMonitorEnter）和LockSupport.park等待（ThreadPark），按监视器/锁的类型统计
+     */
+    public Map<String, Object> summarize(Path file, int top) throws IOException {
+        Map<String, long[]> hotMethods = new HashMap<>();
+        Map<String, long[]> allocationSites = new HashMap<>();
+        Map<String, long[]> locks = new HashMap<>();
+        long executionSamples = 0;
+        Instant first = null;
+        Instant last = null;
+
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                Instant start = event.getStartTime();
+                first = first == null || start.isBefore(first) ? start : first;
+                last = last == null || start.isAfter(last) ? start : last;
+                switch (event.getEventType().getName()) {
+                    case "jdk.ExecutionSample" -> {
+                        executionSamples++;
+                        frame(event.getStackTrace(), false)
+                                .ifPresent(method -> add(hotMethods, method, 1));
+                    }
+                    case "jdk.ObjectAllocationSample" -> frame(event.getStackTrace(), true)
+                            .ifPresent(site -> add(allocationSites, site, event.getLong("weight")));
+                    case "jdk.JavaMonitorEnter" -> add(locks,
+                            "monitor " + className(event.getClass("monitorClass")), event.getDuration().toNanos());
+                    case "jdk.ThreadPark" -> add(locks,
+                            "park " + className(event.getClass("parkedClass")), event.getDuration().toNanos());
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("from", first);
+        summary.put("to", last);
+        summary.put("executionSamples", executionSamples);
+        summary.put("hotMethods", top(hotMethods, top, "samples", null, 1));
+        summary.put("allocationSites", top(allocationSites, top, "samples", "bytes", 1));
+        summary.put("lockContention", top(locks, top, "events", "totalWaitMs", 1_000_000));
+        return summary;
+    }
+
+    private Optional<Recording> find(long id) {
+        return Optional.ofNullable(recordings.get(id));
+    }
+
+    private static Map<String, Object> describe(Recording recording) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("id", recording.getId());
+        info.put("name", recording.getName());
+        info.put("state", recording.getState());
+        info.put("startTime", recording.getStartTime());
+        info.put("duration", recording.getDuration());
+        info.put("maxAge", recording.getMaxAge());
+        info.put("size", recording.getSize());
+        return info;
+    }
+
+    /**
+     * 栈顶方法；applicationOnly时跳过JDK内部的栈帧，全是JDK栈帧时仍取栈顶
+     */
+    private static Optional<String> frame(RecordedStackTrace stackTrace, boolean applicationOnly) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return Optional.empty();
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        RecordedFrame selected = frames.get(0);
+        if (applicationOnly) {
+            for (RecordedFrame frame : frames) {
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                    selected = frame;
+                    break;
+                }
+            }
+        }
+        RecordedMethod method = selected.getMethod();
+        String location = method.getType().getName() + "." + method.getName();
+        return Optional.of(selected.getLineNumber() > 0 ? location + ":" + selected.getLineNumber() : location);
+    }
+
+    private static String className(RecordedClass recordedClass) {
+        return recordedClass != null ? recordedClass.getName() : "unknown";
+    }
+
+    /** 计数和累计值 */
+    private static void add(Map<String, long[]> stats, String key, long value) {
+        long[] counters = stats.computeIfAbsent(key, k -> new long[2]);
+        counters[0]++;
+        counters[1] += value;
+    }
+
+    /**
+     * 按累计值排序取前n项，累计值除以divisor后输出；valueName为null时只输出计数
+     */
+    private static List<Map<String, Object>> top(Map<String, long[]> stats, int n, String countName,
+                                                 String valueName, long divisor) {
+        return stats.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                .limit(n)
+                .map(entry -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("name", entry.getKey());
+                    item.put(countName, entry.getValue()[0]);
+                    if (valueName != null) {
+                        item.put(valueName, entry.getValue()[1] / divisor);
+                    }
+                    return item;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,107 @@
+package com.codelearn.service;
+
+import com.codelearn.config.CacheInvalidationPublisher;
+import com.codelearn.config.TwoLevelCacheManager;
+import com.codelearn.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * token版本服务
+ * 无状态认证模式下，JWT中携带签发时用户的token版本号；
+ * 禁用用户或变更角色时版本号递增，携带旧版本号的token随即失效。
+ *
+ * 版本号缓存在进程内，只有缓存未命中时才查询数据库（只查一列），
+ * 避免每个请求都访问数据库。
+ * 版本号变更时通过缓存失效通知让其他实例清除各自缓存的版本号，吊销的token在所有实例上立即失效；
+ * 通知丢失（序号缺口、断线重连）时清空全部版本号，ttl只是最后的兜底
+ */
+@Service
+@Slf4j
+public class TokenVersionService {
+
+    /** 用户不存在时的版本号，任何token都无法匹配 */
+    private static final int MISSING_USER = -1;
+
+    /** 失效通知中使用的名称 */
+    public static final String NAME = "token-versions";
+
+    private final LoadingCache<Long, Integer> versions;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final TwoLevelCacheManager cacheManager;
+
+    public TokenVersionService(UserRepository userRepository,
+                               CacheInvalidationPublisher invalidationPublisher,
+                               TwoLevelCacheManager cacheManager,
+                               @Value("${app.jwt.version-cache.max-size:10000}") long maxSize,
+                               @Value("${app.jwt.version-cache.ttl:60s}") Duration ttl) {
+        this.invalidationPublisher = invalidationPublisher;
+        this.cacheManager = cacheManager;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)  // 失效通知无法送达时（如Redis不可用），其他实例最迟在ttl之后看到新版本号
+                .build(id -> userRepository.findTokenVersionById(id).orElse(MISSING_USER));
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        cacheManager.addInvalidationListener(NAME, this::onRemoteInvalidation);
+    }
+
+    /**
+     * 校验token中的版本号是否为用户当前版本
+     */
+    public boolean isCurrent(Long userId, Integer tokenVersion) {
+        if (userId == null || tokenVersion == null) {
+            return false;
+        }
+        return Objects.equals(versions.get(userId), tokenVersion);
+    }
+
+    /**
+     * 用户的token版本号已变更（或用户已删除）
+     * 在当前事务提交后清除缓存，避免其他请求在提交前把旧版本号重新加载进缓存
+     */
+    public void onVersionChanged(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(userId);
+                }
+            });
+        } else {
+            invalidate(userId);
+        }
+    }
+
+    private void invalidate(Long userId) {
+        versions.invalidate(userId);
+        invalidationPublisher.publishEvict(NAME, String.valueOf(userId));
+        log.info("用户token版本已变更，旧token失效，ID: {}", userId);
+    }
+
+    /**
+     * 其他实例变更了版本号，清除本实例缓存的版本号
+     */
+    private void onRemoteInvalidation(String key) {
+        if (CacheInvalidationPublisher.ALL_KEYS.equals(key)) {
+            versions.invalidateAll();
+            return;
+        }
+        try {
+            versions.invalidate(Long.valueOf(key));
+        } catch (NumberFormatException e) {
+            log.warn("无法解析token版本失效通知: {}", key);
+        }
+    }
+}
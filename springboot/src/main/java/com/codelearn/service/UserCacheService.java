@@ -0,0 +1,509 @@
+package com.codelearn.service;
+
+import com.codelearn.config.CacheRegionProperties;
+import com.codelearn.config.CacheTagIndex;
+import com.codelearn.config.TwoLevelCache;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 用户缓存服务
+ * 以编程方式实现读穿透（read-through）缓存，由UserService显式调用。
+ *
+ * 之前UserService通过this调用自身的@Cacheable方法，绕过了Spring代理，缓存注解从未生效；
+ * 这里直接操作CacheManager，无论调用方式如何都能命中缓存。
+ * Redis不可用时读取直接降级到数据库加载，写入和失效失败只记录日志
+ *
+ * 防缓存击穿：
+ * 1. 单飞加载（single-flight）：同一个key同时未命中时只有一个线程执行loader，其他线程等待它的结果
+ * 2. 概率提前刷新（XFetch）：缓存条目记录加载耗时，越接近过期、加载越慢，被提前刷新的概率越高，
+ *    热点key在过期前就由后台线程重新加载，触发刷新的请求照常返回当前缓存值，不会在过期瞬间集中未命中
+ *
+ * 加载期间对应的key、缓存或值的标签被失效过时，加载结果不回写缓存，避免写回旧值；
+ * 失效时间按key/标签的哈希分段记录，只影响同一分段的加载，其他key的加载照常回写
+ *
+ * 缓存分为多个区域（按ID、按用户名、列表），各自配置过期时间和容量；
+ * 写入时给条目打上标签（如 user:42），更新某个用户时按标签只清除相关条目
+ */
+@Service
+@Slf4j
+public class UserCacheService {
+
+    /** 按ID缓存的用户 */
+    public static final String USERS_CACHE = "users";
+
+    /** 按用户名缓存的用户 */
+    public static final String USERNAME_CACHE = "users-by-username";
+
+    /** 用户列表 */
+    public static final String LIST_CACHE = "user-lists";
+
+    /** 所有用户列表条目共有的标签，新增用户时失效 */
+    public static final String LISTS_TAG = "user-lists";
+
+    private final CacheManager cacheManager;
+    private final CacheTagIndex tagIndex;
+    private final CacheRegionProperties regionProperties;
+    private final long defaultTtlMillis;
+    private final double refreshBeta;
+    private final long loadWaitMillis;
+
+    /** 正在加载的key -> 加载结果，同一个key的并发未命中共享同一次加载 */
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /** 失效时间分段数，不同key/标签落在同一分段的概率约为 1/分段数，冲突只会让加载结果少回写一次 */
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    /** 失效时钟：每次失效递增，加载开始时记下当前值 */
+    private final AtomicLong invalidationClock = new AtomicLong();
+
+    /** 每个分段最近一次失效的时钟值，分段由 key（缓存名::key）、标签或缓存名的哈希决定 */
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    /** 提前刷新在后台执行，不占用触发刷新的请求 */
+    private final Executor refreshExecutor;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder earlyRefreshes = new LongAdder();
+
+    public UserCacheService(CacheManager cacheManager,
+                            CacheTagIndex tagIndex,
+                            CacheRegionProperties regionProperties,
+                            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                            Executor refreshExecutor,
+                            @Value("${app.cache.redis.ttl:30m}") Duration ttl,
+                            @Value("${app.cache.refresh.beta:1.0}") double refreshBeta,
+                            @Value("${app.cache.load-wait-timeout:5s}") Duration loadWaitTimeout) {
+        this.cacheManager = cacheManager;
+        this.tagIndex = tagIndex;
+        this.regionProperties = regionProperties;
+        this.refreshExecutor = refreshExecutor;
+        this.defaultTtlMillis = ttl.toMillis();
+        this.refreshBeta = refreshBeta;
+        this.loadWaitMillis = loadWaitTimeout.toMillis();
+    }
+
+    /**
+     * 用户标签：按ID、按用户名缓存的该用户条目，以及包含该用户的列表条目都带有此标签
+     */
+    public static String userTag(Long userId) {
+        return "user:" + userId;
+    }
+
+    /**
+     * 读穿透获取：缓存命中直接返回，否则调用loader加载并写入缓存
+     * loader返回null时不写入缓存
+     */
+    public <T> T get(String cacheName, Object key, Supplier<T> loader) {
+        return get(cacheName, key, loader, value -> List.of());
+    }
+
+    /**
+     * 读穿透获取，写入缓存时用tagger根据加载到的值生成标签
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String cacheName, Object key, Supplier<T> loader,
+                     Function<? super T, ? extends Collection<String>> tagger) {
+        Tagged tagged = new Tagged(loader, value -> tagger.apply((T) value));
+        Cache cache = cacheManager.getCache(cacheName);
+        boolean cacheAvailable = true;
+        try {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            if (wrapper != null && wrapper.get() != null) {
+                Object cached = wrapper.get();
+                if (!(cached instanceof CacheEntry entry)) {
+                    return (T) cached;  // 升级前写入的旧格式条目
+                }
+                if (shouldRefreshEarly(cacheName, entry)) {
+                    refreshEarly(cache, key, tagged);
+                } else {
+                    log.debug("缓存命中，缓存: {}, key: {}", cacheName, key);
+                }
+                return (T) entry.getValue();
+            }
+        } catch (Exception e) {
+            log.warn("读取缓存失败，降级到直接访问数据库: {}", e.getMessage());
+            cacheAvailable = false;
+        }
+
+        return (T) loadSingleFlight(cache, key, tagged, cacheAvailable);
+    }
+
+    /**
+     * 批量读穿透：一次批量读取缓存，未命中的key交给loader一次加载，加载结果一次批量写回。
+     * 批量读取不做单飞合并和提前刷新（由单条读取负责），loader没有返回的key视为不存在
+     *
+     * @return 存在的 key -> 值，未找到的key不在结果中
+     */
+    @SuppressWarnings("unchecked")
+    public <K, T> Map<K, T> getAll(String cacheName, Collection<K> keys,
+                                   Function<Collection<K>, Map<K, T>> loader,
+                                   Function<? super T, ? extends Collection<String>> tagger) {
+        Map<K, T> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (!(cache instanceof TwoLevelCache twoLevelCache)) {
+            for (K key : keys) {
+                T value = get(cacheName, key, () -> loader.apply(List.of(key)).get(key), tagger);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        }
+
+        boolean cacheAvailable = true;
+        try {
+            twoLevelCache.getAll(keys).forEach((key, cached) -> {
+                Object value = cached instanceof CacheEntry entry ? entry.getValue() : cached;
+                if (value != null) {
+                    result.put((K) key, (T) value);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("批量读取缓存失败，降级到直接访问数据库: {}", e.getMessage());
+            cacheAvailable = false;
+        }
+        List<K> misses = keys.stream().filter(key -> !result.containsKey(key)).toList();
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        long loadStartedAt = invalidationClock.get();
+        long start = System.currentTimeMillis();
+        loads.increment();
+        Map<K, T> loaded = loader.apply(misses);
+        long loadMillis = System.currentTimeMillis() - start;
+        result.putAll(loaded);
+
+        if (!loaded.isEmpty() && cacheAvailable) {
+            Map<K, Collection<String>> tags = new HashMap<>();
+            loaded.forEach((key, value) -> {
+                Collection<String> valueTags = tagger.apply(value);
+                if (!invalidatedSince(loadStartedAt, cacheName, key, valueTags)) {
+                    tags.put(key, valueTags);
+                }
+            });
+            if (!tags.isEmpty() && tagIndex.tagAll(cacheName, tags)) {
+                long now = System.currentTimeMillis();
+                Map<K, CacheEntry> entries = new HashMap<>();
+                tags.forEach((key, valueTags) -> {
+                    if (!invalidatedSince(loadStartedAt, cacheName, key, valueTags)) {
+                        entries.put(key, new CacheEntry(loaded.get(key), now, loadMillis));
+                    }
+                });
+                try {
+                    twoLevelCache.putAll(entries);
+                } catch (Exception e) {
+                    log.warn("批量写入缓存失败，跳过: {}", e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清除指定key的缓存（在事务中调用时提交后再清除一次）
+     */
+    public void evict(String cacheName, Object key) {
+        doEvict(cacheName, key);
+        afterCommit(() -> doEvict(cacheName, key));
+    }
+
+    private void doEvict(String cacheName, Object key) {
+        markInvalidated(flightKey(cacheName, key));
+        try {
+            cacheManager.getCache(cacheName).evict(key);
+            log.info("清除缓存，缓存: {}, key: {}", cacheName, key);
+        } catch (Exception e) {
+            log.warn("Redis缓存不可用，跳过缓存清除: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清空整个缓存（在事务中调用时提交后再清空一次）
+     */
+    public void clear(String cacheName) {
+        doClear(cacheName);
+        afterCommit(() -> doClear(cacheName));
+    }
+
+    private void doClear(String cacheName) {
+        markInvalidated(cacheToken(cacheName));
+        try {
+            cacheManager.getCache(cacheName).clear();
+            log.info("清空缓存: {}", cacheName);
+        } catch (Exception e) {
+            log.warn("Redis缓存不可用，跳过缓存清除: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按标签失效：只清除打了该标签的条目，每个key的清除照常同步到其他实例。
+     * 在事务中调用时，提交后再执行一次：提交前其他请求可能读到旧数据并重新写入缓存，
+     * 其他实例也要在提交后收到通知才不会重新加载到旧数据
+     */
+    public void invalidateTag(String tag) {
+        doInvalidateTag(tag);
+        afterCommit(() -> doInvalidateTag(tag));
+    }
+
+    private void doInvalidateTag(String tag) {
+        // 先记录标签失效：正在加载、尚未打上标签的条目不在标签索引中，靠这个时间判断不回写
+        markInvalidated(tagToken(tag));
+        Map<String, Set<String>> entries = tagIndex.drain(tag);
+        entries.forEach((cacheName, keys) -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            for (String key : keys) {
+                markInvalidated(flightKey(cacheName, key));
+                try {
+                    cache.evict(key);
+                } catch (Exception e) {
+                    log.warn("Redis缓存不可用，跳过缓存清除: {}", e.getMessage());
+                }
+            }
+        });
+        log.info("按标签清除缓存，标签: {}, 条目: {}", tag, entries);
+    }
+
+    /**
+     * 加载统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loads", loads.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("earlyRefreshes", earlyRefreshes.sum());
+        stats.put("inFlight", inFlight.size());
+        stats.put("localTags", tagIndex.localSize());
+        return stats;
+    }
+
+    /**
+     * 单飞加载：第一个未命中的线程负责加载，其余线程等待同一个结果。
+     * 等待超时后自行加载，避免loader卡住时所有请求一起卡住
+     */
+    private Object loadSingleFlight(Cache cache, Object key, Tagged loader, boolean cacheAvailable) {
+        String flightKey = flightKey(cache.getName(), key);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, future);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing, loader.loader());
+        }
+
+        try {
+            // 上一个加载者可能刚写入缓存并退出，成为加载者后再查一次，避免重复加载
+            Object value = cacheAvailable ? cachedValue(cache, key) : null;
+            if (value == null) {
+                value = load(cache, key, loader, cacheAvailable);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, future);
+        }
+    }
+
+    /**
+     * 提前刷新：抢到加载权后交给后台线程加载，当前请求立即返回缓存值；没抢到的请求照常返回缓存值
+     */
+    private void refreshEarly(Cache cache, Object key, Tagged loader) {
+        String flightKey = flightKey(cache.getName(), key);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(flightKey, future) != null) {
+            return;
+        }
+        earlyRefreshes.increment();
+        log.debug("提前刷新缓存，缓存: {}, key: {}", cache.getName(), key);
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    future.complete(load(cache, key, loader, true));
+                } catch (RuntimeException e) {
+                    // 刷新失败不影响请求，旧值在过期前仍然有效
+                    future.completeExceptionally(e);
+                    log.warn("提前刷新缓存失败，缓存: {}, key: {}, 原因: {}", cache.getName(), key, e.getMessage());
+                } finally {
+                    inFlight.remove(flightKey, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(flightKey, future);
+            future.completeExceptionally(e);
+            log.warn("提前刷新任务被拒绝，缓存: {}, key: {}", cache.getName(), key);
+        }
+    }
+
+    private Object load(Cache cache, Object key, Tagged loader, boolean cacheAvailable) {
+        long loadStartedAt = invalidationClock.get();
+        long start = System.currentTimeMillis();
+        loads.increment();
+        Object value = loader.loader().get();
+        long loadMillis = System.currentTimeMillis() - start;
+
+        Collection<String> tags = value != null ? loader.tagger().apply(value) : List.of();
+        if (value != null && cacheAvailable && !invalidatedSince(loadStartedAt, cache.getName(), key, tags)) {
+            // 先打标签再写入，标签写入Redis失败时不写缓存，否则该条目无法按标签失效
+            if (tagIndex.tag(cache.getName(), key, tags)
+                    && !invalidatedSince(loadStartedAt, cache.getName(), key, tags)) {
+                try {
+                    cache.put(key, new CacheEntry(value, System.currentTimeMillis(), loadMillis));
+                } catch (Exception e) {
+                    log.warn("写入缓存失败，跳过: {}", e.getMessage());
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 记录一次失效：时钟递增，并把新的时钟值记到该key/标签/缓存所在的分段
+     */
+    private void markInvalidated(String token) {
+        long now = invalidationClock.incrementAndGet();
+        invalidatedAt.accumulateAndGet(stripe(token), now, Math::max);
+    }
+
+    /**
+     * 加载开始之后，该key、所在缓存或值的任一标签是否被失效过
+     */
+    private boolean invalidatedSince(long loadStartedAt, String cacheName, Object key, Collection<String> tags) {
+        if (invalidatedAt.get(stripe(flightKey(cacheName, key))) > loadStartedAt
+                || invalidatedAt.get(stripe(cacheToken(cacheName))) > loadStartedAt) {
+            return true;
+        }
+        for (String tag : tags) {
+            if (invalidatedAt.get(stripe(tagToken(tag))) > loadStartedAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int stripe(String token) {
+        return Math.floorMod(token.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    /**
+     * key统一转为字符串，按标签失效时从标签索引取出的字符串key与读取时的原始key对应同一个分段
+     */
+    private static String flightKey(String cacheName, Object key) {
+        return cacheName + "::" + key;
+    }
+
+    private static String cacheToken(String cacheName) {
+        return "cache::" + cacheName;
+    }
+
+    private static String tagToken(String tag) {
+        return "tag::" + tag;
+    }
+
+    private Object cachedValue(Cache cache, Object key) {
+        try {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            Object cached = wrapper != null ? wrapper.get() : null;
+            return cached instanceof CacheEntry entry ? entry.getValue() : cached;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future, Supplier<?> loader) {
+        try {
+            return future.get(loadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("等待缓存加载超时，直接访问数据库");
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待缓存加载时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * XFetch：now - loadMillis * beta * ln(rand) >= expiresAt 时提前刷新
+     * ln(rand) < 0，离过期越近、加载耗时越长，越容易触发
+     */
+    private boolean shouldRefreshEarly(String cacheName, CacheEntry entry) {
+        if (refreshBeta <= 0) {
+            return false;
+        }
+        Duration regionTtl = regionProperties.getRegion(cacheName).getTtl();
+        long expiresAt = entry.getLoadedAt() + (regionTtl != null ? regionTtl.toMillis() : defaultTtlMillis);
+        double gap = Math.max(entry.getLoadMillis(), 1) * refreshBeta
+                * -Math.log(ThreadLocalRandom.current().nextDouble(Double.MIN_VALUE, 1.0));
+        return System.currentTimeMillis() + gap >= expiresAt;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * loader和生成标签的函数
+     */
+    private record Tagged(Supplier<?> loader, Function<Object, ? extends Collection<String>> tagger) {
+    }
+
+    /**
+     * 缓存条目：值 + 加载时间 + 加载耗时（用于提前刷新）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheEntry {
+        private Object value;
+        private long loadedAt;
+        private long loadMillis;
+    }
+}
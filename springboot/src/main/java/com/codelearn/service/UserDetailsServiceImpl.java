@@ -27,13 +27,25 @@ import java.util.Collections;
 public class UserDetailsServiceImpl implements UserDetailsService {
     
     private final UserRepository userRepository;
+    private final UserNegativeCache userNegativeCache;
+    private final UserRequestLoader userRequestLoader;
     
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         log.info("加载用户信息：{}", username);
         
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
+        // 撞库等针对不存在用户名的登录请求不再访问数据库
+        if (userNegativeCache.isAbsentUsername(username)) {
+            throw new UsernameNotFoundException("用户不存在: " + username);
+        }
+        
+        // 同一请求内只查询一次数据库（认证需要最新的实体，不使用缓存中的用户）
+        User user = userRequestLoader.loadByUsername(username, true,
+                () -> userRepository.findByUsername(username)).orElse(null);
+        if (user == null) {
+            userNegativeCache.markAbsentUsername(username);
+            throw new UsernameNotFoundException("用户不存在: " + username);
+        }
         
         // 检查用户状态
         if (user.getStatus() == 0) {
@@ -66,15 +78,23 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         private String password;
         private Collection<? extends GrantedAuthority> authorities;
         private boolean enabled;
+        private Integer tokenVersion;
         
         public UserPrincipal(Long id, String username, String email, String password, 
                             Collection<? extends GrantedAuthority> authorities, boolean enabled) {
+            this(id, username, email, password, authorities, enabled, 0);
+        }
+        
+        public UserPrincipal(Long id, String username, String email, String password, 
+                            Collection<? extends GrantedAuthority> authorities, boolean enabled,
+                            Integer tokenVersion) {
             this.id = id;
             this.username = username;
             this.email = email;
             this.password = password;
             this.authorities = authorities;
             this.enabled = enabled;
+            this.tokenVersion = tokenVersion;
         }
         
         public static UserPrincipal create(User user) {
@@ -89,10 +109,23 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 user.getEmail(),
                 user.getPassword(),
                 authorities,
-                user.getStatus() == 1
+                user.getStatus() == 1,
+                user.getTokenVersion()
             );
         }
         
+        /**
+         * 根据JWT声明构建用户主体（无状态认证模式，不查询数据库）
+         * 只有启用状态的用户才能登录获取token，禁用后token版本号失效，因此这里视为启用
+         */
+        public static UserPrincipal create(Long id, String username, String email, String role, Integer tokenVersion) {
+            Collection<GrantedAuthority> authorities = Collections.singletonList(
+                new SimpleGrantedAuthority("ROLE_" + role)
+            );
+            
+            return new UserPrincipal(id, username, email, null, authorities, true, tokenVersion);
+        }
+        
         public Long getId() {
             return id;
         }
@@ -101,6 +134,10 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             return email;
         }
         
+        public Integer getTokenVersion() {
+            return tokenVersion;
+        }
+        
         @Override
         public String getUsername() {
             return username;
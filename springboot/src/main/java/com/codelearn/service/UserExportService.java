@@ -0,0 +1,168 @@
+package com.codelearn.service;
+
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * 用户导出服务
+ * 在只读事务中以流的方式读取用户，逐行写出NDJSON或CSV，
+ * 每写出一行就将实体从持久化上下文中移除，内存占用与表大小无关
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserExportService {
+
+    /** 允许导出的字段（不包含密码等敏感字段） */
+    public static final List<String> EXPORTABLE_FIELDS =
+            List.of("id", "username", "email", "status", "role", "createdAt", "updatedAt");
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final UserRepository userRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 解析并校验导出字段，为空时导出全部允许的字段
+     */
+    public List<String> resolveFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EXPORTABLE_FIELDS;
+        }
+        List<String> result = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!EXPORTABLE_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("不支持导出的字段: " + name);
+            }
+            result.add(name);
+        }
+        return result;
+    }
+
+    /**
+     * 导出用户到输出流
+     *
+     * @param format ndjson 或 csv
+     * @return 导出的行数
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out, String format, List<String> fields) throws IOException {
+        long start = System.currentTimeMillis();
+        boolean csv = "csv".equals(format.toLowerCase(Locale.ROOT));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator generator = null;
+        if (!csv) {
+            generator = jsonFactory.createGenerator(writer);
+            generator.setRootValueSeparator(null);  // 行之间只用换行分隔
+        }
+
+        if (csv) {
+            writer.write(String.join(",", fields));
+            writer.write('\n');
+        }
+
+        long rows = 0;
+        try (Stream<User> users = userRepository.streamAll()) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                if (csv) {
+                    writeCsvRow(writer, user, fields);
+                } else {
+                    writeJsonRow(generator, user, fields);
+                }
+                entityManager.detach(user);
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    flush(generator, writer);
+                }
+            }
+        }
+        flush(generator, writer);
+        log.info("导出用户完成，格式: {}, 行数: {}, 耗时: {}ms", format, rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private void writeJsonRow(JsonGenerator generator, User user, List<String> fields) throws IOException {
+        generator.writeStartObject();
+        for (String field : fields) {
+            Object value = fieldValue(user, field);
+            if (value == null) {
+                generator.writeNullField(field);
+            } else if (value instanceof Number number) {
+                generator.writeNumberField(field, number.longValue());
+            } else {
+                generator.writeStringField(field, value.toString());
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeCsvRow(Writer writer, User user, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = fieldValue(user, fields.get(i));
+            if (value != null) {
+                writer.write(escapeCsv(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void flush(JsonGenerator generator, Writer writer) throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+    }
+
+    private static Object fieldValue(User user, String field) {
+        return switch (field) {
+            case "id" -> user.getId();
+            case "username" -> user.getUsername();
+            case "email" -> user.getEmail();
+            case "status" -> user.getStatus();
+            case "role" -> user.getRole();
+            case "createdAt" -> user.getCreatedAt();
+            case "updatedAt" -> user.getUpdatedAt();
+            default -> null;
+        };
+    }
+
+    /**
+     * 包含逗号、双引号或换行（\n、\r）的字段用双引号包裹，字段内的双引号写成两个
+     */
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
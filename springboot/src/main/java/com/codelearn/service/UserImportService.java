@@ -0,0 +1,427 @@
+package com.codelearn.service;
+
+import com.codelearn.common.UserImportResult;
+import com.codelearn.common.UserImportRow;
+import com.codelearn.config.BoundedPasswordEncoder;
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * 用户批量导入服务
+ * 流式读取JSON数组或CSV请求体，按批处理：
+ * 1. 每批用一次IN查询检查用户名/邮箱唯一性（而不是每行两次exists查询）
+ * 2. 并行计算密码哈希
+ * 3. 每批一个事务，借助序列预分配ID和JDBC批处理批量插入
+ * 单行错误只记录在结果中，不影响其他行：整批写入失败时逐行重试（每行一个事务），只有真正失败的行计入错误
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final UserSearchIndex userSearchIndex;
+    private final UserStatsService userStatsService;
+    private final UserNegativeCache userNegativeCache;
+    private final UserCacheService userCacheService;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final ExecutorService hashExecutor;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public UserImportService(UserRepository userRepository,
+                             BoundedPasswordEncoder passwordEncoder,
+                             PlatformTransactionManager transactionManager,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             UserSearchIndex userSearchIndex,
+                             UserStatsService userStatsService,
+                             UserNegativeCache userNegativeCache,
+                             UserCacheService userCacheService,
+                             @Value("${app.import.chunk-size:500}") int chunkSize,
+                             @Value("${app.import.hash-threads:4}") int hashThreads,
+                             @Value("${app.import.max-errors:1000}") int maxErrors) {
+        this.userRepository = userRepository;
+        // 导入使用自己的哈希线程池，直接用底层编码器，不占用登录/注册的哈希队列
+        this.passwordEncoder = passwordEncoder.getDelegate();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.userSearchIndex = userSearchIndex;
+        this.userStatsService = userStatsService;
+        this.userNegativeCache = userNegativeCache;
+        this.userCacheService = userCacheService;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.hashExecutor = Executors.newFixedThreadPool(hashThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdown();
+    }
+
+    /**
+     * 导入JSON数组：[{"username":..., "email":..., "password":..., "role":...}, ...]
+     * 不是对象的元素（数字、null、嵌套数组等）记为该位置的行错误，继续读取后面的元素
+     */
+    public UserImportResult importJson(InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        UserImportResult result = new UserImportResult();
+        List<UserImportRow> chunk = new ArrayList<>(chunkSize);
+        int line = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("JSON格式错误：请求体必须是用户数组");
+            }
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        throw new JsonParseException(parser, "JSON数组未结束");
+                    }
+                    if (token != JsonToken.START_OBJECT) {
+                        String element = token == JsonToken.START_ARRAY ? "数组" : parser.getText();
+                        parser.skipChildren();  // 嵌套数组整体跳过
+                        line++;
+                        result.setTotal(result.getTotal() + 1);
+                        fail(result, line, null, "第" + line + "个元素不是用户对象: " + element);
+                        continue;
+                    }
+                    UserImportRow row = objectMapper.readValue(parser, UserImportRow.class);
+                    row.setLine(++line);
+                    chunk.add(row);
+                    if (chunk.size() >= chunkSize) {
+                        processChunk(chunk, result);
+                        chunk.clear();
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // 解析失败时已读取的数据照常导入，之后的内容无法定位，停止读取
+                result.setTotal(result.getTotal() + 1);
+                fail(result, line + 1, null, "JSON解析失败，停止读取: " + e.getOriginalMessage());
+            }
+        }
+        processChunk(chunk, result);
+        return finish(result, start);
+    }
+
+    /**
+     * 导入CSV：首行为表头，需包含username、email、password列，role列可选
+     */
+    public UserImportResult importCsv(InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        UserImportResult result = new UserImportResult();
+        List<UserImportRow> chunk = new ArrayList<>(chunkSize);
+
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        CsvRecord header = reader.next();
+        if (header == null) {
+            return finish(result, start);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> headers = header.values();
+        for (int i = 0; i < headers.size(); i++) {
+            columns.put(headers.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.keySet().containsAll(List.of("username", "email", "password"))) {
+            throw new IllegalArgumentException("CSV表头必须包含username、email、password列");
+        }
+
+        CsvRecord record;
+        while ((record = reader.next()) != null) {
+            List<String> values = record.values();
+            if (values.size() == 1 && values.get(0).isBlank()) {
+                continue;  // 空行
+            }
+            UserImportRow row = new UserImportRow();
+            row.setLine(record.line());
+            row.setUsername(column(values, columns.get("username")));
+            row.setEmail(column(values, columns.get("email")));
+            row.setPassword(column(values, columns.get("password")));
+            row.setRole(column(values, columns.get("role")));
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                processChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        processChunk(chunk, result);
+        return finish(result, start);
+    }
+
+    /**
+     * 处理一批数据：校验 -> 批量唯一性检查 -> 并行哈希 -> 单事务批量插入
+     */
+    private void processChunk(List<UserImportRow> chunk, UserImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        result.setTotal(result.getTotal() + chunk.size());
+
+        // 1. 字段校验和批内去重
+        List<UserImportRow> valid = new ArrayList<>(chunk.size());
+        List<User> users = new ArrayList<>(chunk.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (UserImportRow row : chunk) {
+            User user = toUser(row, result);
+            if (user == null) {
+                continue;
+            }
+            if (!usernames.add(user.getUsername())) {
+                fail(result, row.getLine(), row.getUsername(), "用户名在导入数据中重复");
+                continue;
+            }
+            if (!emails.add(user.getEmail())) {
+                fail(result, row.getLine(), row.getUsername(), "邮箱在导入数据中重复");
+                continue;
+            }
+            valid.add(row);
+            users.add(user);
+        }
+        if (users.isEmpty()) {
+            return;
+        }
+
+        // 2. 每批一次IN查询检查与已有数据是否冲突
+        Set<String> existingUsernames = new HashSet<>(userRepository.findExistingUsernames(usernames));
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(emails));
+        List<UserImportRow> acceptedRows = new ArrayList<>(users.size());
+        List<User> accepted = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            UserImportRow row = valid.get(i);
+            if (existingUsernames.contains(user.getUsername())) {
+                fail(result, row.getLine(), row.getUsername(), "用户名已存在: " + user.getUsername());
+            } else if (existingEmails.contains(user.getEmail())) {
+                fail(result, row.getLine(), row.getUsername(), "邮箱已存在: " + user.getEmail());
+            } else {
+                acceptedRows.add(row);
+                accepted.add(user);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // 3. 并行计算密码哈希
+        List<CompletableFuture<String>> hashes = accepted.stream()
+                .map(user -> CompletableFuture.supplyAsync(() -> passwordEncoder.encode(user.getPassword()), hashExecutor))
+                .collect(Collectors.toList());
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).setPassword(hashes.get(i).join());
+        }
+
+        // 4. 单事务批量插入；整批失败（如并发导入造成唯一约束冲突）时逐行重试，找出真正失败的行
+        try {
+            insert(accepted);
+            result.setImported(result.getImported() + accepted.size());
+        } catch (Exception e) {
+            log.warn("批量导入写入失败，本批 {} 行回滚后逐行重试: {}", accepted.size(), e.getMessage());
+            for (int i = 0; i < accepted.size(); i++) {
+                User user = accepted.get(i);
+                UserImportRow row = acceptedRows.get(i);
+                user.setId(null);  // 回滚前已分配的ID作废，重新按新实体插入
+                try {
+                    insert(List.of(user));
+                    result.setImported(result.getImported() + 1);
+                } catch (Exception rowError) {
+                    fail(result, row.getLine(), row.getUsername(), "写入失败: " + rootMessage(rowError));
+                }
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中批量插入，完成后清空持久化上下文避免内存增长；
+     * 搜索索引和负缓存在提交成功后才更新，回滚的行不会留在索引里
+     */
+    private void insert(List<User> users) {
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.saveAll(users);
+            entityManager.flush();
+            entityManager.clear();
+            users.forEach(userStatsService::onCreated);
+        });
+        for (User user : users) {
+            userSearchIndex.add(user);
+            userNegativeCache.onUserSaved(user);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    /**
+     * 将导入行转换为用户实体并校验，失败时记录错误并返回null
+     */
+    private User toUser(UserImportRow row, UserImportResult result) {
+        User.UserRole role = User.UserRole.USER;
+        if (row.getRole() != null && !row.getRole().isBlank()) {
+            try {
+                role = User.UserRole.valueOf(row.getRole().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                fail(result, row.getLine(), row.getUsername(), "无效的角色: " + row.getRole());
+                return null;
+            }
+        }
+        User user = new User(trim(row.getUsername()), trim(row.getEmail()), row.getPassword(), role);
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            fail(result, row.getLine(), row.getUsername(), message);
+            return null;
+        }
+        return user;
+    }
+
+    private void fail(UserImportResult result, int line, String username, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new UserImportResult.RowError(line, username, message));
+        }
+    }
+
+    private UserImportResult finish(UserImportResult result, long start) {
+        if (result.getImported() > 0) {
+            // 列表类缓存已过期（Redis不可用时跳过）
+            userCacheService.invalidateTag(UserCacheService.LISTS_TAG);
+        }
+        result.setDurationMs(System.currentTimeMillis() - start);
+        log.info("批量导入完成，总数: {}, 成功: {}, 失败: {}, 耗时: {}ms",
+                result.getTotal(), result.getImported(), result.getFailed(), result.getDurationMs());
+        return result;
+    }
+
+    private static String column(List<String> values, Integer index) {
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    /**
+     * CSV记录：起始行号 + 字段值
+     */
+    private record CsvRecord(int line, List<String> values) {
+    }
+
+    /**
+     * 按记录读取CSV，支持双引号包裹的字段和""转义；
+     * 引号内的换行属于字段内容，一条记录可以跨多行
+     */
+    private static class CsvReader {
+
+        private final BufferedReader reader;
+        private int line;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * 读取下一条记录，没有更多数据时返回null
+         */
+        CsvRecord next() throws IOException {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            int startLine = ++line;
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (quoted) {
+                        if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                            current.append('"');
+                            i++;
+                        } else if (c == '"') {
+                            quoted = false;
+                        } else {
+                            current.append(c);
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                    } else if (c == ',') {
+                        values.add(current.toString());
+                        current.setLength(0);
+                    } else {
+                        current.append(c);
+                    }
+                }
+                if (!quoted) {
+                    break;
+                }
+                // 引号未闭合：换行是字段内容，继续读取下一行；到达末尾时按已读内容结束
+                String more = reader.readLine();
+                if (more == null) {
+                    break;
+                }
+                line++;
+                current.append('\n');
+                text = more;
+            }
+            values.add(current.toString());
+            return new CsvRecord(startLine, values);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.codelearn.service;
+
+import com.codelearn.config.CacheInvalidationPublisher;
+import com.codelearn.config.CacheInvalidationSubscriber;
+import com.codelearn.config.TwoLevelCacheManager;
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 用户负缓存
+ * 记录"不存在"的查询结果，撞库登录、探测不存在ID等请求不再每次访问数据库：
+ * 1. 用户名布隆过滤器：过滤器判定不存在的用户名一定不存在，直接返回，不查Redis也不查数据库
+ * 2. 短TTL的本地负缓存：布隆过滤器误判或按ID查询未命中时，在短时间内记住"不存在"
+ *
+ * 创建用户（包括改名）时立即清除对应的负缓存条目并加入布隆过滤器，
+ * 同时通过缓存失效通知让其他实例做同样的处理。
+ * 布隆过滤器不支持删除，删除和改名留下的旧用户名只会让它多放行一些请求，定期重建时清理
+ */
+@Service
+@Slf4j
+public class UserNegativeCache {
+
+    /** 失效通知中使用的名称 */
+    public static final String NAME = "users-absent";
+
+    private static final String USERNAME_PREFIX = "username:";
+    private static final String ID_PREFIX = "id:";
+
+    private final UserRepository userRepository;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheInvalidationSubscriber invalidationSubscriber;
+    private final Cache<String, Boolean> absent;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final boolean standalone;
+
+    private volatile BloomFilter usernames;
+
+    /** 重建期间新增的用户名，重建完成后补进新的过滤器 */
+    private List<String> pendingDuringRebuild;
+
+    private final LongAdder bloomRejects = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+
+    public UserNegativeCache(UserRepository userRepository,
+                             CacheInvalidationPublisher invalidationPublisher,
+                             TwoLevelCacheManager cacheManager,
+                             CacheInvalidationSubscriber invalidationSubscriber,
+                             @Value("${app.cache.negative.ttl:30s}") Duration ttl,
+                             @Value("${app.cache.negative.max-size:10000}") long maxSize,
+                             @Value("${app.cache.negative.bloom.expected-insertions:100000}") long expectedInsertions,
+                             @Value("${app.cache.negative.bloom.fpp:0.01}") double falsePositiveRate,
+                             @Value("${app.cache.negative.bloom.standalone:false}") boolean standalone) {
+        this.userRepository = userRepository;
+        this.invalidationPublisher = invalidationPublisher;
+        this.cacheManager = cacheManager;
+        this.invalidationSubscriber = invalidationSubscriber;
+        this.absent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.standalone = standalone;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        cacheManager.addInvalidationListener(NAME, this::onRemoteInvalidation);
+    }
+
+    /**
+     * 应用就绪后构建布隆过滤器，并定期重建以清理已删除的用户名
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.cache.negative.bloom.rebuild-interval:3600000}",
+               initialDelayString = "${app.cache.negative.bloom.rebuild-interval:3600000}")
+    public void rebuildBloomFilter() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        BloomFilter filter;
+        try {
+            List<String> all = userRepository.findAllUsernames();
+            filter = new BloomFilter(Math.max(expectedInsertions, all.size() * 2L), falsePositiveRate);
+            all.forEach(filter::put);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            pendingDuringRebuild.forEach(filter::put);
+            pendingDuringRebuild = null;
+            usernames = filter;
+        }
+        log.info("用户名布隆过滤器构建完成，位数: {}, 哈希函数数: {}, 耗时: {}ms",
+                filter.bitSize, filter.hashFunctions, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 用户名是否确定不存在
+     */
+    public boolean isAbsentUsername(String username) {
+        BloomFilter filter = usernames;
+        // 多实例部署时只有在能收到其他实例的新增通知时，布隆过滤器的"不存在"才可信
+        if (filter != null && (standalone || invalidationSubscriber.isSubscribed())
+                && !filter.mightContain(username)) {
+            bloomRejects.increment();
+            return true;
+        }
+        return isNegative(USERNAME_PREFIX + username);
+    }
+
+    /**
+     * 用户ID是否在短时间内查询过且不存在
+     */
+    public boolean isAbsentId(Long id) {
+        return isNegative(ID_PREFIX + id);
+    }
+
+    public void markAbsentUsername(String username) {
+        absent.put(USERNAME_PREFIX + username, Boolean.TRUE);
+    }
+
+    public void markAbsentId(Long id) {
+        absent.put(ID_PREFIX + id, Boolean.TRUE);
+    }
+
+    /**
+     * 用户创建或改名：立即清除负缓存条目，并在事务提交后再清一次
+     * （防止提交前的并发查询又写入"不存在"），同时通知其他实例
+     */
+    public void onUserSaved(User user) {
+        String usernameKey = USERNAME_PREFIX + user.getUsername();
+        String idKey = ID_PREFIX + user.getId();
+        addUsername(user.getUsername());
+        absent.invalidate(usernameKey);
+        absent.invalidate(idKey);
+        afterCommit(() -> {
+            addUsername(user.getUsername());
+            absent.invalidate(usernameKey);
+            absent.invalidate(idKey);
+            invalidationPublisher.publishEvict(NAME, usernameKey);
+            invalidationPublisher.publishEvict(NAME, idKey);
+        });
+    }
+
+    /**
+     * 负缓存和布隆过滤器统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        BloomFilter filter = usernames;
+        stats.put("negativeSize", absent.estimatedSize());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("bloomReady", filter != null);
+        stats.put("bloomTrusted", standalone || invalidationSubscriber.isSubscribed());
+        stats.put("bloomRejects", bloomRejects.sum());
+        return stats;
+    }
+
+    private boolean isNegative(String key) {
+        if (absent.getIfPresent(key) != null) {
+            negativeHits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void addUsername(String username) {
+        if (usernames != null) {
+            usernames.put(username);
+        }
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(username);
+        }
+    }
+
+    private void onRemoteInvalidation(String key) {
+        if (CacheInvalidationPublisher.ALL_KEYS.equals(key)) {
+            absent.invalidateAll();
+            return;
+        }
+        if (key.startsWith(USERNAME_PREFIX)) {
+            addUsername(key.substring(USERNAME_PREFIX.length()));
+        }
+        absent.invalidate(key);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 线程安全的布隆过滤器（双重哈希）
+     */
+    private static class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitSize;
+        private final int hashFunctions;
+
+        BloomFilter(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(expectedInsertions, 1);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+            this.bitSize = bits.length() * 64L;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        }
+
+        void put(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashFunctions; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitSize;
+                long mask = 1L << index;
+                int word = (int) (index >>> 6);
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashFunctions; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitSize;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a 64位哈希 + MurmurHash3的fmix64混淆
+         */
+        private static long hash(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
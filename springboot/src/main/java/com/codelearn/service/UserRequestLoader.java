@@ -0,0 +1,209 @@
+package com.codelearn.service;
+
+import com.codelearn.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 请求级用户加载器
+ * 同一个请求内多次查找同一个用户（认证过滤器、控制器、服务层各查一次）时只访问一次缓存或数据库，
+ * 一次查找多个ID时把未记住的ID合并成一次批量加载。
+ *
+ * 查找结果（包括不存在）记在请求属性中，请求结束即丢弃，不会跨请求共享；
+ * 不在请求线程中（定时任务、导入线程等）时直接调用加载函数。
+ * 同一请求内发生用户写操作后清空，避免后续查找读到写之前的数据
+ *
+ * 从数据库直接加载的结果标记为最新：认证需要完整的实体（如token版本号），
+ * 只使用最新的结果；其他查找可以使用任何结果
+ */
+@Component
+public class UserRequestLoader {
+
+    private static final String ATTRIBUTE = UserRequestLoader.class.getName();
+
+    private final Counter lookups;
+    private final Counter fetches;
+    private final DistributionSummary savedPerRequest;
+    private final DistributionSummary batchSizes;
+
+    public UserRequestLoader(MeterRegistry meterRegistry) {
+        this.lookups = Counter.builder("user.loader.lookups")
+                .description("请求内的用户查找次数")
+                .register(meterRegistry);
+        this.fetches = Counter.builder("user.loader.fetches")
+                .description("实际访问缓存或数据库的次数")
+                .register(meterRegistry);
+        this.savedPerRequest = DistributionSummary.builder("user.loader.saved")
+                .description("每个请求节省的缓存/数据库访问次数")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("user.loader.batch.size")
+                .description("每次批量加载的ID数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 按ID查找，本请求已查找过时直接返回记住的结果
+     *
+     * @param batchLoader 批量加载函数：ID集合 -> 存在的用户，不存在的ID不在结果中
+     */
+    public Optional<User> load(Long id, Function<Collection<Long>, Map<Long, User>> batchLoader) {
+        return Optional.ofNullable(loadMany(List.of(id), batchLoader).get(id));
+    }
+
+    /**
+     * 按ID批量查找，本请求未查找过的ID合并为一次批量加载
+     *
+     * @return 存在的 ID -> 用户
+     */
+    public Map<Long, User> loadMany(Collection<Long> ids, Function<Collection<Long>, Map<Long, User>> batchLoader) {
+        RequestState state = state();
+        lookups.increment(ids.size());
+        if (state == null) {
+            fetches.increment();
+            return batchLoader.apply(ids);
+        }
+        state.lookups += ids.size();
+
+        Map<Long, User> result = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Entry entry = state.byId.get(id);
+            if (entry == null) {
+                misses.add(id);
+            } else if (entry.user() != null) {
+                result.put(id, entry.user());
+            }
+        }
+        if (!misses.isEmpty()) {
+            fetches.increment();
+            batchSizes.record(misses.size());
+            state.fetches++;
+            Map<Long, User> loaded = batchLoader.apply(misses);
+            for (Long id : misses) {
+                User user = loaded.get(id);
+                state.remember(id, null, user, false);
+                if (user != null) {
+                    result.put(id, user);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按用户名查找
+     *
+     * @param fresh  是否只接受直接从数据库加载的结果（认证使用）；loader也应直接查询数据库
+     * @param loader 加载函数
+     */
+    public Optional<User> loadByUsername(String username, boolean fresh, Supplier<Optional<User>> loader) {
+        RequestState state = state();
+        lookups.increment();
+        if (state != null) {
+            state.lookups++;
+            Entry entry = state.byUsername.get(username);
+            if (entry != null && (entry.fresh() || !fresh)) {
+                return Optional.ofNullable(entry.user());
+            }
+        }
+
+        fetches.increment();
+        Optional<User> user = loader.get();
+        if (state != null) {
+            state.fetches++;
+            state.remember(null, username, user.orElse(null), fresh);
+        }
+        return user;
+    }
+
+    /**
+     * 丢弃本请求记住的结果（用户写操作后调用）
+     */
+    public void clear() {
+        RequestState state = state();
+        if (state != null) {
+            state.byId.clear();
+            state.byUsername.clear();
+        }
+    }
+
+    /**
+     * 累计统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("lookups", (long) lookups.count());
+        stats.put("fetches", (long) fetches.count());
+        stats.put("requests", savedPerRequest.count());
+        stats.put("saved", (long) savedPerRequest.totalAmount());
+        stats.put("maxSavedPerRequest", (long) savedPerRequest.max());
+        return stats;
+    }
+
+    /**
+     * 当前请求的状态；第一次使用时创建，并在请求结束时记录节省的访问次数
+     */
+    private RequestState state() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        RequestState state = (RequestState) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (state == null) {
+            RequestState created = new RequestState();
+            attributes.setAttribute(ATTRIBUTE, created, RequestAttributes.SCOPE_REQUEST);
+            attributes.registerDestructionCallback(ATTRIBUTE,
+                    () -> savedPerRequest.record(created.lookups - created.fetches), RequestAttributes.SCOPE_REQUEST);
+            state = created;
+        }
+        return state;
+    }
+
+    /**
+     * 单个请求内记住的查找结果，只在请求线程中访问
+     */
+    private static class RequestState {
+
+        private final Map<Long, Entry> byId = new HashMap<>();
+        private final Map<String, Entry> byUsername = new HashMap<>();
+        private int lookups;
+        private int fetches;
+
+        /**
+         * 记住查找结果；查找到的用户同时按ID和用户名记住
+         */
+        void remember(Long id, String username, User user, boolean fresh) {
+            Entry entry = new Entry(user, fresh);
+            if (id != null) {
+                byId.put(id, entry);
+            }
+            if (username != null) {
+                byUsername.put(username, entry);
+            }
+            if (user != null) {
+                byId.put(user.getId(), entry);
+                byUsername.put(user.getUsername(), entry);
+            }
+        }
+    }
+
+    /**
+     * 查找结果：user为null表示不存在；fresh表示直接从数据库加载
+     */
+    private record Entry(User user, boolean fresh) {
+    }
+}
@@ -0,0 +1,273 @@
+package com.codelearn.service;
+
+import com.codelearn.config.CacheInvalidationPublisher;
+import com.codelearn.config.TwoLevelCacheManager;
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 用户搜索索引
+ * 对用户名和邮箱建立进程内的三元组（trigram）倒排索引，
+ * 替代无法使用索引的 LIKE '%kw%' 全表扫描。
+ *
+ * 启动时从数据库加载，之后随UserService的增删改在事务提交后增量更新；
+ * 加载完成前search返回空，调用方回退到SQL查询。
+ *
+ * 本实例的变更通过缓存失效通知（区域user-search，key为用户ID）发给其他实例，
+ * 其他实例收到后从数据库重新读取该用户；通知丢失（序号缺口、重新订阅）时整体重建，
+ * 重建期间回退到SQL。另按固定间隔全量重建，兜底Redis长时间不可用时漏掉的变更
+ */
+@Component
+@Slf4j
+public class UserSearchIndex {
+
+    public static final String NAME = "user-search";
+
+    private static final int GRAM = 3;
+
+    private final UserRepository userRepository;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final TwoLevelCacheManager cacheManager;
+    private final Executor reloadExecutor;
+
+    /** 用户ID -> 小写的 [用户名, 邮箱]；全量重建时整体替换 */
+    private volatile Map<Long, String[]> documents = new ConcurrentHashMap<>();
+
+    /** 三元组 -> 包含该三元组的用户ID */
+    private volatile Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    public UserSearchIndex(UserRepository userRepository,
+                           CacheInvalidationPublisher invalidationPublisher,
+                           TwoLevelCacheManager cacheManager,
+                           @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                           Executor reloadExecutor) {
+        this.userRepository = userRepository;
+        this.invalidationPublisher = invalidationPublisher;
+        this.cacheManager = cacheManager;
+        this.reloadExecutor = reloadExecutor;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        cacheManager.addInvalidationListener(NAME, this::onRemoteInvalidation);
+    }
+
+    /**
+     * 应用就绪后加载索引（此时示例数据已初始化完成），之后按固定间隔全量重建
+     * 新索引建好后整体替换，重建期间搜索仍使用旧索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.search.rebuild-interval:3600000}",
+               initialDelayString = "${app.search.rebuild-interval:3600000}")
+    public synchronized void load() {
+        long start = System.currentTimeMillis();
+        Map<Long, String[]> newDocuments = new ConcurrentHashMap<>();
+        Map<String, Set<Long>> newPostings = new ConcurrentHashMap<>();
+        for (Object[] row : userRepository.findSearchFields()) {
+            index(newDocuments, newPostings, (Long) row[0], (String) row[1], (String) row[2]);
+        }
+        documents = newDocuments;
+        postings = newPostings;
+        ready = true;
+        log.info("用户搜索索引加载完成，用户数: {}, 三元组数: {}, 耗时: {}ms",
+                documents.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 新增或更新用户的索引（当前事务提交后生效，并通知其他实例）
+     */
+    public void add(User user) {
+        Long id = user.getId();
+        String username = user.getUsername();
+        String email = user.getEmail();
+        afterCommit(() -> {
+            synchronized (this) {
+                unindex(id);
+                index(documents, postings, id, username, email);
+            }
+            invalidationPublisher.publishEvict(NAME, String.valueOf(id));
+        });
+    }
+
+    /**
+     * 删除用户的索引（当前事务提交后生效，并通知其他实例）
+     */
+    public void remove(Long id) {
+        afterCommit(() -> {
+            synchronized (this) {
+                unindex(id);
+            }
+            invalidationPublisher.publishEvict(NAME, String.valueOf(id));
+        });
+    }
+
+    /**
+     * 搜索用户名或邮箱包含关键词的用户
+     *
+     * @return 按ID升序的候选用户ID；索引尚未加载完成时返回空
+     */
+    public Optional<List<Long>> search(String keyword) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        String kw = keyword.toLowerCase(Locale.ROOT);
+        Map<Long, String[]> documents = this.documents;
+        Map<String, Set<Long>> postings = this.postings;
+
+        List<Long> result = new ArrayList<>();
+        if (kw.length() < GRAM) {
+            // 关键词过短无法使用三元组，直接扫描内存中的文档
+            documents.forEach((id, doc) -> {
+                if (matches(doc, kw)) {
+                    result.add(id);
+                }
+            });
+        } else {
+            // 从最小的倒排表开始求交集，最后校验子串（三元组全部命中不代表连续出现）
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : grams(kw)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Optional.of(Collections.emptyList());
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            for (Long id : lists.get(0)) {
+                if (containsAll(lists, id)) {
+                    String[] doc = documents.get(id);
+                    if (doc != null && matches(doc, kw)) {
+                        result.add(id);
+                    }
+                }
+            }
+        }
+        result.sort(null);
+        return Optional.of(result);
+    }
+
+    /**
+     * 其他实例变更了用户：按ID从数据库重新读取；通知可能丢失时在后台整体重建，重建完成前回退到SQL
+     */
+    private void onRemoteInvalidation(String key) {
+        if (CacheInvalidationPublisher.ALL_KEYS.equals(key)) {
+            ready = false;
+            try {
+                reloadExecutor.execute(this::load);
+            } catch (RejectedExecutionException e) {
+                log.warn("提交搜索索引重建失败，等待定时重建: {}", e.getMessage());
+            }
+            return;
+        }
+        Long id;
+        try {
+            id = Long.valueOf(key);
+        } catch (NumberFormatException e) {
+            log.warn("无法解析搜索索引失效通知: {}", key);
+            return;
+        }
+        List<Object[]> rows = userRepository.findSearchFieldsById(id);
+        synchronized (this) {
+            unindex(id);
+            for (Object[] row : rows) {
+                index(documents, postings, (Long) row[0], (String) row[1], (String) row[2]);
+            }
+        }
+    }
+
+    private static void index(Map<Long, String[]> documents, Map<String, Set<Long>> postings,
+                              Long id, String username, String email) {
+        String[] doc = {lower(username), lower(email)};
+        documents.put(id, doc);
+        for (String field : doc) {
+            for (String gram : grams(field)) {
+                postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+    }
+
+    private void unindex(Long id) {
+        String[] doc = documents.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String field : doc) {
+            for (String gram : grams(field)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static boolean containsAll(List<Set<Long>> lists, Long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String[] doc, String kw) {
+        return doc[0].contains(kw) || doc[1].contains(kw);
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
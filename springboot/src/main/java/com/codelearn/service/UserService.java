@@ -1,18 +1,28 @@
 package com.codelearn.service;
 
+import com.codelearn.common.CursorPage;
 import com.codelearn.entity.User;
 import com.codelearn.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * 用户服务类
@@ -25,74 +35,104 @@ import java.util.Optional;
 public class UserService {
     
     private final UserRepository userRepository;
+    private final UserCacheService userCacheService;
+    private final TokenVersionService tokenVersionService;
+    private final UserSearchIndex userSearchIndex;
+    private final UserStatsService userStatsService;
+    private final UserNegativeCache userNegativeCache;
+    private final UserRequestLoader userRequestLoader;
+    
+    /** 游标分页支持的排序字段（均有索引或唯一约束） */
+    private static final Set<String> KEYSET_SORT_KEYS = Set.of("id", "username", "email", "createdAt");
     
     /**
      * 获取所有用户
      * 使用缓存提高性能，Redis不可用时降级到直接访问数据库
      */
     public List<User> getAllUsers() {
-        log.info("从数据库获取所有用户");
-        try {
-            return getAllUsersWithCache();
-        } catch (Exception e) {
-            log.warn("Redis缓存不可用，降级到直接访问数据库: {}", e.getMessage());
+        log.info("获取所有用户");
+        return userCacheService.get(UserCacheService.LIST_CACHE, "all", () -> {
+            log.info("从数据库获取所有用户");
             return userRepository.findAll();
-        }
-    }
-    
-    /**
-     * 带缓存的获取所有用户方法
-     */
-    @Cacheable(value = "users", key = "'all'")
-    public List<User> getAllUsersWithCache() {
-        log.info("从数据库获取所有用户（带缓存）");
-        return userRepository.findAll();
+        }, UserService::listTags);
     }
     
     /**
      * 根据ID获取用户
-     * 缓存单个用户信息，Redis不可用时降级到直接访问数据库
+     * 缓存单个用户信息，Redis不可用时降级到直接访问数据库；
+     * 不存在的ID在短时间内记入负缓存，同一请求内重复查找只访问一次缓存
      */
     public Optional<User> getUserById(Long id) {
-        log.info("从数据库获取用户，ID: {}", id);
-        try {
-            return getUserByIdWithCache(id);
-        } catch (Exception e) {
-            log.warn("Redis缓存不可用，降级到直接访问数据库: {}", e.getMessage());
-            return userRepository.findById(id);
+        log.info("获取用户，ID: {}", id);
+        if (userNegativeCache.isAbsentId(id)) {
+            return Optional.empty();
         }
+        return userRequestLoader.load(id, this::fetchUsersByIds);
     }
     
     /**
-     * 带缓存的根据ID获取用户方法
+     * 根据ID批量获取用户
+     * 与按ID获取共用缓存：一次MGET读取缓存，未命中的ID用一次IN查询加载，再一次流水线写回缓存。
+     * 结果按请求中ID的顺序返回，重复的ID只返回一次，不存在的ID跳过
      */
-    @Cacheable(value = "users", key = "#id")
-    public Optional<User> getUserByIdWithCache(Long id) {
-        log.info("从数据库获取用户，ID: {}（带缓存）", id);
-        return userRepository.findById(id);
+    public List<User> getUsersByIds(List<Long> ids) {
+        log.info("批量获取用户，ID数: {}", ids.size());
+        List<Long> distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .filter(id -> !userNegativeCache.isAbsentId(id))
+                .toList();
+        Map<Long, User> users = userRequestLoader.loadMany(distinctIds, this::fetchUsersByIds);
+        return distinctIds.stream().map(users::get).filter(Objects::nonNull).toList();
     }
     
     /**
-     * 根据用户名获取用户
-     * Redis不可用时降级到直接访问数据库
+     * 按ID加载用户（请求级加载器的批量加载函数）
+     * 单个ID走单飞加载和提前刷新，多个ID走批量缓存读写
      */
-    public Optional<User> getUserByUsername(String username) {
-        log.info("根据用户名查找用户: {}", username);
-        try {
-            return getUserByUsernameWithCache(username);
-        } catch (Exception e) {
-            log.warn("Redis缓存不可用，降级到直接访问数据库: {}", e.getMessage());
-            return userRepository.findByUsername(username);
+    private Map<Long, User> fetchUsersByIds(Collection<Long> ids) {
+        if (ids.size() == 1) {
+            Long id = ids.iterator().next();
+            User user = userCacheService.get(UserCacheService.USERS_CACHE, id, () -> {
+                log.info("从数据库获取用户，ID: {}", id);
+                User loaded = userRepository.findById(id).orElse(null);
+                if (loaded == null) {
+                    userNegativeCache.markAbsentId(id);
+                }
+                return loaded;
+            }, loaded -> List.of(UserCacheService.userTag(loaded.getId())));
+            return user != null ? Map.of(id, user) : Map.of();
         }
+        return userCacheService.getAll(UserCacheService.USERS_CACHE, ids, missing -> {
+            log.info("从数据库批量获取用户，ID数: {}", missing.size());
+            Map<Long, User> loaded = new HashMap<>();
+            for (User user : userRepository.findAllById(missing)) {
+                loaded.put(user.getId(), user);
+            }
+            missing.stream().filter(id -> !loaded.containsKey(id)).forEach(userNegativeCache::markAbsentId);
+            return loaded;
+        }, user -> List.of(UserCacheService.userTag(user.getId())));
     }
     
     /**
-     * 带缓存的根据用户名获取用户方法
+     * 根据用户名获取用户
+     * 缓存单个用户信息，Redis不可用时降级到直接访问数据库；
+     * 布隆过滤器判定不存在的用户名直接返回，不访问缓存和数据库
      */
-    @Cacheable(value = "users", key = "'username:' + #username")
-    public Optional<User> getUserByUsernameWithCache(String username) {
-        log.info("根据用户名查找用户: {}（带缓存）", username);
-        return userRepository.findByUsername(username);
+    public Optional<User> getUserByUsername(String username) {
+        log.info("根据用户名查找用户: {}", username);
+        if (userNegativeCache.isAbsentUsername(username)) {
+            return Optional.empty();
+        }
+        return userRequestLoader.loadByUsername(username, false, () ->
+                Optional.ofNullable(userCacheService.get(UserCacheService.USERNAME_CACHE, username, () -> {
+                    log.info("从数据库根据用户名查找用户: {}", username);
+                    User user = userRepository.findByUsername(username).orElse(null);
+                    if (user == null) {
+                        userNegativeCache.markAbsentUsername(username);
+                    }
+                    return user;
+                }, user -> List.of(UserCacheService.userTag(user.getId())))));
     }
     
     /**
@@ -121,55 +161,96 @@ public class UserService {
         }
         
         User savedUser = userRepository.save(user);
+        userRequestLoader.clear();
+        userSearchIndex.add(savedUser);
+        userStatsService.onCreated(savedUser);
+        userNegativeCache.onUserSaved(savedUser);
         
-        // 尝试清除缓存
-        try {
-            evictAllUserCache();
-        } catch (Exception e) {
-            log.warn("Redis缓存不可用，跳过缓存清除: {}", e.getMessage());
-        }
+        // 新用户只影响列表缓存（Redis不可用时跳过）
+        userCacheService.invalidateTag(UserCacheService.LISTS_TAG);
         
         return savedUser;
     }
     
-    /**
-     * 清除所有用户缓存
-     */
-    @CacheEvict(value = "users", allEntries = true)
-    public void evictAllUserCache() {
-        log.info("清除所有用户缓存");
-    }
-    
     /**
      * 更新用户
+     * 把请求中的字段复制到从数据库加载的受管实体上再保存，而不是合并请求对象：
+     * 合并会把请求中没有的创建时间等字段写成null，并以该状态放入Hibernate二级缓存。
      * 清除特定用户的缓存，Redis不可用时降级到直接操作数据库
      */
     @Transactional
     public User updateUser(User user) {
         log.info("更新用户: {}", user.getId());
         
-        if (!userRepository.existsById(user.getId())) {
-            throw new RuntimeException("用户不存在: " + user.getId());
-        }
+        User existing = userRepository.findById(user.getId())
+                .orElseThrow(() -> new RuntimeException("用户不存在: " + user.getId()));
         
-        User savedUser = userRepository.save(user);
+        // 禁用用户或变更角色时递增token版本号，使已签发的JWT失效
+        boolean revokeTokens = !Objects.equals(existing.getRole(), user.getRole())
+                || (Integer.valueOf(1).equals(existing.getStatus()) && user.getStatus() != null && user.getStatus() != 1);
+        int currentVersion = existing.getTokenVersion();
+        Integer oldStatus = existing.getStatus();
+        User.UserRole oldRole = existing.getRole();
+        String oldUsername = existing.getUsername();
+        existing.setUsername(user.getUsername());
+        existing.setEmail(user.getEmail());
+        existing.setPassword(user.getPassword());
+        existing.setStatus(user.getStatus());
+        existing.setRole(user.getRole());
+        existing.setTokenVersion(revokeTokens ? currentVersion + 1 : currentVersion);
         
-        // 尝试清除特定用户缓存
-        try {
-            evictUserCache(user.getId());
-        } catch (Exception e) {
-            log.warn("Redis缓存不可用，跳过缓存清除: {}", e.getMessage());
+        User savedUser = userRepository.save(existing);
+        userRequestLoader.clear();
+        userSearchIndex.add(savedUser);
+        userStatsService.onUpdated(oldStatus, oldRole, savedUser);
+        if (!Objects.equals(oldUsername, savedUser.getUsername())) {
+            userNegativeCache.onUserSaved(savedUser);  // 改名后新用户名不能再命中负缓存
+        }
+        if (revokeTokens) {
+            tokenVersionService.onVersionChanged(user.getId());
         }
         
+        // 按标签清除该用户的ID、用户名条目和包含该用户的列表（Redis不可用时跳过）
+        userCacheService.invalidateTag(UserCacheService.userTag(user.getId()));
+        
         return savedUser;
     }
     
     /**
-     * 清除特定用户缓存
+     * 修改用户状态（启用/禁用）
+     * 从数据库加载受管实体，只修改状态字段，不会把缓存中可能过期的其他字段写回数据库；
+     * 禁用用户时递增token版本号，使已签发的JWT失效
+     *
+     * @return 修改后的用户，用户不存在时为空
      */
-    @CacheEvict(value = "users", key = "#id")
-    public void evictUserCache(Long id) {
-        log.info("清除用户缓存，ID: {}", id);
+    @Transactional
+    public Optional<User> updateStatus(Long id, Integer status) {
+        log.info("修改用户状态，ID: {}, 状态: {}", id, status);
+        
+        Optional<User> found = userRepository.findById(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        User user = found.get();
+        Integer oldStatus = user.getStatus();
+        boolean revokeTokens = Integer.valueOf(1).equals(oldStatus) && !Integer.valueOf(1).equals(status);
+        user.setStatus(status);
+        if (revokeTokens) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
+        
+        User savedUser = userRepository.save(user);
+        userRequestLoader.clear();
+        userSearchIndex.add(savedUser);
+        userStatsService.onUpdated(oldStatus, savedUser.getRole(), savedUser);
+        if (revokeTokens) {
+            tokenVersionService.onVersionChanged(id);
+        }
+        
+        // 按标签清除该用户的ID、用户名条目和包含该用户的列表（Redis不可用时跳过）
+        userCacheService.invalidateTag(UserCacheService.userTag(id));
+        
+        return Optional.of(savedUser);
     }
     
     /**
@@ -180,18 +261,17 @@ public class UserService {
     public void deleteUser(Long id) {
         log.info("删除用户: {}", id);
         
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("用户不存在: " + id);
-        }
+        User existing = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("用户不存在: " + id));
         
         userRepository.deleteById(id);
+        userRequestLoader.clear();
+        userStatsService.onDeleted(existing.getStatus(), existing.getRole());
+        userSearchIndex.remove(id);
+        tokenVersionService.onVersionChanged(id);
         
-        // 尝试清除缓存
-        try {
-            evictAllUserCache();
-        } catch (Exception e) {
-            log.warn("Redis缓存不可用，跳过缓存清除: {}", e.getMessage());
-        }
+        // 按标签清除该用户相关的缓存（Redis不可用时跳过）
+        userCacheService.invalidateTag(UserCacheService.userTag(id));
     }
     
     /**
@@ -202,6 +282,87 @@ public class UserService {
         return userRepository.findAll(pageable);
     }
     
+    /**
+     * 分页获取用户（Slice模式）
+     * 不执行COUNT查询，只返回是否有下一页
+     */
+    public Slice<User> getUsersSlice(Pageable pageable) {
+        log.info("分页获取用户（Slice），页码: {}, 大小: {}", pageable.getPageNumber(), pageable.getPageSize());
+        return userRepository.findAllAsSlice(pageable);
+    }
+    
+    /**
+     * 游标分页获取用户
+     * 按 (sortBy, id) 键集定位下一页，深度翻页的开销与页码无关
+     *
+     * @param cursor 上一页返回的nextCursor，首页传null
+     */
+    public CursorPage<User> getUsersByCursor(String sortBy, String sortDir, String cursor, int size) {
+        log.info("游标分页获取用户，排序: {} {}, 大小: {}", sortBy, sortDir, size);
+        if (!KEYSET_SORT_KEYS.contains(sortBy)) {
+            throw new IllegalArgumentException("不支持的排序字段: " + sortBy);
+        }
+        boolean ascending = !"desc".equalsIgnoreCase(sortDir);
+        
+        Comparable<?> lastValue = null;
+        Long lastId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = decodeCursor(cursor);
+            if (!parts[0].equals(sortBy) || !parts[1].equals(ascending ? "asc" : "desc")) {
+                throw new IllegalArgumentException("游标与排序参数不匹配");
+            }
+            lastId = Long.valueOf(parts[2]);
+            lastValue = parseSortValue(sortBy, parts[3]);
+        }
+        
+        // 多取一条用于判断是否还有下一页
+        List<User> rows = userRepository.findPageAfter(sortBy, ascending, lastValue, lastId, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<User> content = hasNext ? rows.subList(0, size) : rows;
+        
+        String nextCursor = null;
+        if (hasNext) {
+            User last = content.get(content.size() - 1);
+            nextCursor = encodeCursor(sortBy, ascending, last);
+        }
+        return new CursorPage<>(new ArrayList<>(content), size, hasNext, nextCursor);
+    }
+    
+    /**
+     * 游标格式：Base64URL("排序字段|方向|ID|排序字段值")，值放在最后以允许包含分隔符
+     */
+    private String encodeCursor(String sortBy, boolean ascending, User last) {
+        Object value = switch (sortBy) {
+            case "username" -> last.getUsername();
+            case "email" -> last.getEmail();
+            case "createdAt" -> last.getCreatedAt();
+            default -> last.getId();
+        };
+        String raw = sortBy + "|" + (ascending ? "asc" : "desc") + "|" + last.getId() + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("无效的游标");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的游标", e);
+        }
+    }
+    
+    private Comparable<?> parseSortValue(String sortBy, String value) {
+        return switch (sortBy) {
+            case "username", "email" -> value;
+            case "createdAt" -> LocalDateTime.parse(value);
+            default -> Long.valueOf(value);
+        };
+    }
+    
     /**
      * 搜索用户
      */
@@ -210,7 +371,33 @@ public class UserService {
         if (keyword == null || keyword.trim().isEmpty()) {
             return userRepository.findAll(pageable);
         }
-        return userRepository.searchActiveUsers(keyword.trim(), pageable);
+        
+        // 优先使用内存三元组索引得到候选ID（按ID排序），只按ID加载当前页；
+        // 索引未就绪或请求了其他排序时回退到SQL模糊查询
+        Optional<List<Long>> candidates = pageable.getSort().isUnsorted()
+                ? userSearchIndex.search(keyword.trim())
+                : Optional.empty();
+        if (candidates.isEmpty()) {
+            return userRepository.searchActiveUsers(keyword.trim(), pageable);
+        }
+        
+        List<Long> ids = candidates.get();
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, to);
+        
+        Map<Long, User> loaded = new HashMap<>();
+        for (User user : userRepository.findAllById(pageIds)) {
+            loaded.put(user.getId(), user);
+        }
+        List<User> content = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            User user = loaded.get(id);
+            if (user != null) {
+                content.add(user);
+            }
+        }
+        return new PageImpl<>(content, pageable, ids.size());
     }
     
     /**
@@ -226,11 +413,19 @@ public class UserService {
      */
     public UserStats getUserStats() {
         log.info("获取用户统计信息");
-        long totalUsers = userRepository.count();
-        long activeUsers = userRepository.findActiveUsers().size();
-        long adminUsers = userRepository.findByRole(User.UserRole.ADMIN).size();
-        
-        return new UserStats(totalUsers, activeUsers, adminUsers);
+        return userStatsService.getStats();
+    }
+    
+    /**
+     * 列表缓存条目的标签：包含的每个用户的标签，加上所有列表共有的标签
+     */
+    private static List<String> listTags(List<User> users) {
+        List<String> tags = new ArrayList<>(users.size() + 1);
+        tags.add(UserCacheService.LISTS_TAG);
+        for (User user : users) {
+            tags.add(UserCacheService.userTag(user.getId()));
+        }
+        return tags;
     }
     
     /**
@@ -0,0 +1,170 @@
+package com.codelearn.service;
+
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 用户统计服务
+ * 在内存中按状态和角色维护用户计数，启动时用 COUNT ... GROUP BY 聚合查询初始化一次，
+ * 之后随创建、更新、删除（含启用/禁用）在事务提交后增量更新，
+ * 并定期与数据库对账，避免为了计数把整张表的实体加载到内存
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserStatsService {
+
+    private final UserRepository userRepository;
+
+    private final Map<Integer, Long> byStatus = new HashMap<>();
+    private final Map<User.UserRole, Long> byRole = new EnumMap<>(User.UserRole.class);
+    private long total;
+
+    /** 每次增量更新递增，用于判断对账期间是否有并发写入 */
+    private long modifications;
+
+    /**
+     * 已登记但事务尚未结束的写入数
+     * 这些写入提交后、增量应用前，对账查询已经能看到对应的行，此时覆盖计数会让增量被重复计入
+     */
+    private int pendingWrites;
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        reconcile();
+    }
+
+    /**
+     * 定期与数据库对账
+     * 对账查询期间如果有写入，或还有未结束的写入事务，本轮不覆盖计数，留给下一轮
+     */
+    @Scheduled(fixedDelayString = "${app.stats.reconcile-interval:300000}",
+               initialDelayString = "${app.stats.reconcile-interval:300000}")
+    public void reconcile() {
+        long modificationsBefore;
+        synchronized (this) {
+            modificationsBefore = modifications;
+        }
+
+        Map<Integer, Long> statusCounts = new HashMap<>();
+        for (Object[] row : userRepository.countGroupByStatus()) {
+            statusCounts.put((Integer) row[0], (Long) row[1]);
+        }
+        Map<User.UserRole, Long> roleCounts = new EnumMap<>(User.UserRole.class);
+        for (Object[] row : userRepository.countGroupByRole()) {
+            roleCounts.put((User.UserRole) row[0], (Long) row[1]);
+        }
+        long totalCount = statusCounts.values().stream().mapToLong(Long::longValue).sum();
+
+        synchronized (this) {
+            if (ready && (modifications != modificationsBefore || pendingWrites > 0)) {
+                log.debug("对账期间有写入，跳过本轮用户统计对账");
+                return;
+            }
+            if (ready && (total != totalCount || !byStatus.equals(statusCounts) || !byRole.equals(roleCounts))) {
+                log.warn("用户统计与数据库不一致，已校正。内存: total={}, status={}, role={}；数据库: total={}, status={}, role={}",
+                        total, byStatus, byRole, totalCount, statusCounts, roleCounts);
+            }
+            byStatus.clear();
+            byStatus.putAll(statusCounts);
+            byRole.clear();
+            byRole.putAll(roleCounts);
+            total = totalCount;
+            ready = true;
+        }
+        log.info("用户统计对账完成，总数: {}", totalCount);
+    }
+
+    /**
+     * 获取当前统计
+     * 计数尚未初始化时直接使用聚合查询
+     */
+    public UserService.UserStats getStats() {
+        if (!ready) {
+            return new UserService.UserStats(
+                userRepository.count(),
+                userRepository.countByStatus(1),
+                userRepository.countByRole(User.UserRole.ADMIN)
+            );
+        }
+        synchronized (this) {
+            return new UserService.UserStats(
+                total,
+                byStatus.getOrDefault(1, 0L),
+                byRole.getOrDefault(User.UserRole.ADMIN, 0L)
+            );
+        }
+    }
+
+    public void onCreated(User user) {
+        Integer status = user.getStatus();
+        User.UserRole role = user.getRole();
+        afterCommit(() -> apply(status, role, 1));
+    }
+
+    public void onUpdated(Integer oldStatus, User.UserRole oldRole, User user) {
+        Integer status = user.getStatus();
+        User.UserRole role = user.getRole();
+        if (Objects.equals(oldStatus, status) && oldRole == role) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                apply(oldStatus, oldRole, -1);
+                apply(status, role, 1);
+            }
+        });
+    }
+
+    public void onDeleted(Integer status, User.UserRole role) {
+        afterCommit(() -> apply(status, role, -1));
+    }
+
+    private synchronized void apply(Integer status, User.UserRole role, long delta) {
+        // 计数归零时移除，与GROUP BY结果保持一致
+        byStatus.merge(status, delta, (a, b) -> a + b == 0 ? null : a + b);
+        byRole.merge(role, delta, (a, b) -> a + b == 0 ? null : a + b);
+        total += delta;
+        modifications++;
+    }
+
+    /**
+     * 事务提交后应用增量；从登记到事务结束（提交或回滚）期间计入未结束的写入，对账时据此跳过
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        synchronized (this) {
+            pendingWrites++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (UserStatsService.this) {
+                    pendingWrites--;
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.codelearn.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 缓存失效通知：发布端的批量合并、熔断期间丢弃消息占用序号，
+ * 以及订阅端发现序号缺口后清空本地缓存
+ * 发布端的Redis用mock代替，捕获发出的消息后交给另一个实例的缓存管理器处理
+ */
+class CacheInvalidationTest {
+
+    private static final String USERS = "users";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean redisAvailable = new AtomicBoolean(true);
+    private final List<String> negativeCacheKeys = new CopyOnWriteArrayList<>();
+
+    private StringRedisTemplate redisTemplate;
+    private CacheInvalidationPublisher publisher;
+    private TwoLevelCacheManager subscriber;
+    private Cache subscriberUsers;
+
+    @BeforeEach
+    void setUp() {
+        // 发布端：批大小3，定时刷新间隔足够长，只由批大小触发发布
+        redisTemplate = mock(StringRedisTemplate.class);
+        RedisCircuitBreaker publisherBreaker = mock(RedisCircuitBreaker.class);
+        when(publisherBreaker.allowRequest()).thenAnswer(invocation -> redisAvailable.get());
+        publisher = new CacheInvalidationPublisher(redisTemplate, publisherBreaker, 3, Duration.ofHours(1),
+                new SimpleMeterRegistry());
+
+        // 订阅端：另一个实例，熔断打开使读写只经过L1
+        CacheInvalidationPublisher subscriberPublisher = mock(CacheInvalidationPublisher.class);
+        when(subscriberPublisher.getInstanceId()).thenReturn("subscriber");
+        RedisCircuitBreaker subscriberBreaker = mock(RedisCircuitBreaker.class);
+        RedisCache redisCache = mock(RedisCache.class);
+        when(redisCache.getCacheConfiguration()).thenReturn(RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(RedisSerializer.string())));
+        CacheManager redisCacheManager = mock(CacheManager.class);
+        when(redisCacheManager.getCache(USERS)).thenReturn(redisCache);
+        subscriber = new TwoLevelCacheManager(redisCacheManager, mock(RedisConnectionFactory.class),
+                subscriberPublisher, subscriberBreaker, new CacheRegionProperties(), 100, Duration.ofMinutes(5),
+                new SimpleMeterRegistry());
+        subscriber.addInvalidationListener("user-negative", negativeCacheKeys::add);
+        subscriberUsers = subscriber.getCache(USERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    @Test
+    void batchesAreCompactedAndDeliveredInOrder() throws Exception {
+        fillSubscriberCache("1", "2", "3");
+
+        publisher.publishEvict(USERS, "1");
+        publisher.publishEvict(USERS, "1");
+        publisher.publishEvict(USERS, "2");
+        CacheInvalidationMessage batch = awaitPublished(1);
+        assertThat(batch.getSequence()).isEqualTo(1);
+        assertThat(batch.getEntries()).containsExactly(List.of(USERS, "1"), List.of(USERS, "2"));
+
+        deliver(batch);
+        assertThat(subscriberUsers.get("1")).isNull();
+        assertThat(subscriberUsers.get("2")).isNull();
+        assertThat(subscriberUsers.get("3")).isNotNull();
+
+        // 同一批里有清空操作时，该缓存的单个key不再重复发送
+        publisher.publishEvict(USERS, "3");
+        publisher.publishClear(USERS);
+        publisher.publishEvict("user-negative", "ghost");
+        CacheInvalidationMessage compacted = awaitPublished(2);
+        assertThat(compacted.getSequence()).isEqualTo(2);
+        assertThat(compacted.getEntries())
+                .containsExactly(List.of(USERS, CacheInvalidationPublisher.ALL_KEYS), List.of("user-negative", "ghost"));
+
+        deliver(compacted);
+        assertThat(subscriberUsers.get("3")).isNull();
+        assertThat(negativeCacheKeys).containsExactly("ghost");
+        assertThat(subscriber.getInvalidationStats()).containsEntry("sequenceGaps", 0L);
+    }
+
+    @Test
+    void droppedMessageLeavesGapThatClearsSubscriberCache() throws Exception {
+        publisher.publishEvict(USERS, "1");
+        publisher.publishEvict(USERS, "2");
+        publisher.publishEvict(USERS, "3");
+        deliver(awaitPublished(1));
+        fillSubscriberCache("1", "2", "3", "4");
+
+        // 熔断期间的批次不发布，但占用序号2
+        redisAvailable.set(false);
+        publisher.publishEvict(USERS, "1");
+        publisher.publishEvict(USERS, "2");
+        publisher.publishEvict(USERS, "3");
+        awaitDropped(3);
+        assertThat(publisher.getStats()).containsEntry("sequence", 2L);
+
+        // Redis恢复后没有新的失效，停机前的刷新补发空消息暴露缺口
+        redisAvailable.set(true);
+        publisher.shutdown();
+        CacheInvalidationMessage gap = awaitPublished(2);
+        assertThat(gap.getSequence()).isEqualTo(3);
+        assertThat(gap.getEntries()).isEmpty();
+
+        deliver(gap);
+        assertThat(subscriber.getInvalidationStats()).containsEntry("sequenceGaps", 1L);
+        assertThat(subscriberUsers.get("4")).as("序号缺口清空全部L1，包括本批次未涉及的key").isNull();
+        assertThat(negativeCacheKeys).containsExactly(CacheInvalidationPublisher.ALL_KEYS);
+    }
+
+    private void fillSubscriberCache(String... keys) {
+        for (String key : keys) {
+            subscriberUsers.put(key, "user-" + key);
+            assertThat(subscriberUsers.get(key)).isNotNull();
+        }
+    }
+
+    /**
+     * 等待发布端发出第count条消息并返回它
+     */
+    private CacheInvalidationMessage awaitPublished(int count) throws Exception {
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, timeout(5000).times(count))
+                .convertAndSend(eq(CacheInvalidationPublisher.CHANNEL), payloads.capture());
+        return objectMapper.readValue(payloads.getAllValues().get(count - 1), CacheInvalidationMessage.class);
+    }
+
+    private void awaitDropped(long entries) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!publisher.getStats().get("dropped").equals(entries) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(publisher.getStats()).containsEntry("dropped", entries);
+        verify(redisTemplate, times(1)).convertAndSend(anyString(), anyString());
+    }
+
+    private void deliver(CacheInvalidationMessage message) throws Exception {
+        subscriber.onMessage(new DefaultMessage(CacheInvalidationPublisher.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                objectMapper.writeValueAsBytes(message)), null);
+    }
+}
@@ -0,0 +1,110 @@
+package com.codelearn.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 按处理方法统计的接口耗时和内存分配
+ * 请求的开始和结束直接调用拦截器方法模拟
+ */
+class EndpointMetricsInterceptorTest {
+
+    private static final String HANDLER = "EndpointMetricsInterceptorTest.getItem";
+    private static final int ALLOCATED_BYTES = 4 * 1024 * 1024;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EndpointMetricsInterceptor interceptor = new EndpointMetricsInterceptor(meterRegistry);
+
+    private byte[] allocated;
+
+    @Test
+    void recordsLatencyAndAllocationPerHandler() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HandlerMethod handler = handler();
+
+        interceptor.preHandle(request, response, handler);
+        Thread.sleep(20);
+        allocated = new byte[ALLOCATED_BYTES];
+        interceptor.afterCompletion(request, response, handler, null);
+
+        Map<String, Object> endpoint = endpointStats();
+        assertThat(endpoint).containsEntry("count", 1L);
+        assertThat((Double) latency(endpoint).get("maxMs")).isGreaterThanOrEqualTo(20);
+        assertThat(latency(endpoint)).containsKeys("p50Ms", "p95Ms", "p99Ms");
+        assertThat(allocation(endpoint)).containsEntry("count", 1L);
+        assertThat((Long) allocation(endpoint).get("maxBytes")).isGreaterThanOrEqualTo((long) ALLOCATED_BYTES);
+
+        Timer timer = meterRegistry.get("endpoint.latency").tag("handler", HANDLER).timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncRedispatchKeepsStartTimeAndSkipsAllocation() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HandlerMethod handler = handler();
+
+        interceptor.preHandle(request, response, handler);
+        Thread.sleep(30);
+        // 异步处理完成后在另一个线程上再次分派并结束请求
+        CompletableFuture.runAsync(() -> {
+            interceptor.preHandle(request, response, handler);
+            interceptor.afterCompletion(request, response, handler, null);
+        }).get(5, TimeUnit.SECONDS);
+
+        Map<String, Object> endpoint = endpointStats();
+        assertThat(endpoint).containsEntry("count", 1L);
+        assertThat((Double) latency(endpoint).get("maxMs")).as("从首次分派开始计时").isGreaterThanOrEqualTo(30);
+        assertThat(allocation(endpoint)).as("结束线程不同，分配量无法计算").containsEntry("count", 0L);
+    }
+
+    @Test
+    void requestsWithoutHandlerMethodAreIgnored() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Object staticResource = new Object();
+
+        interceptor.preHandle(request, response, staticResource);
+        interceptor.afterCompletion(request, response, staticResource, null);
+
+        assertThat(interceptor.getStats()).isEmpty();
+    }
+
+    /**
+     * 被测请求的处理方法
+     */
+    byte[] getItem() {
+        return allocated;
+    }
+
+    private HandlerMethod handler() throws NoSuchMethodException {
+        return new HandlerMethod(this, getClass().getDeclaredMethod("getItem"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> endpointStats() {
+        assertThat(interceptor.getStats()).containsKey(HANDLER);
+        return (Map<String, Object>) interceptor.getStats().get(HANDLER);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> latency(Map<String, Object> endpoint) {
+        return (Map<String, Object>) endpoint.get("latency");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> allocation(Map<String, Object> endpoint) {
+        return (Map<String, Object>) endpoint.get("allocation");
+    }
+}
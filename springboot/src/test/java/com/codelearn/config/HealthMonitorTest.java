@@ -0,0 +1,132 @@
+package com.codelearn.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 后台健康探测：接口只读取快照，不触发探测；探测超时记为DOWN，卡住的探测不会被重复提交
+ */
+class HealthMonitorTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final RedisConnectionFactory redisConnectionFactory = mock(RedisConnectionFactory.class);
+    private final RedisCircuitBreaker redisCircuitBreaker = mock(RedisCircuitBreaker.class);
+    private final HealthProbeProperties properties = new HealthProbeProperties();
+    private final CountDownLatch redisHang = new CountDownLatch(1);
+
+    private HealthMonitor healthMonitor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        // Redis的PING一直不返回，直到测试结束
+        RedisConnection redisConnection = mock(RedisConnection.class);
+        when(redisConnection.ping()).thenAnswer(invocation -> {
+            redisHang.await();
+            return "PONG";
+        });
+        when(redisConnectionFactory.getConnection()).thenReturn(redisConnection);
+        when(redisCircuitBreaker.getState()).thenReturn(RedisCircuitBreaker.State.CLOSED);
+
+        properties.setDatabase(new HealthProbeProperties.Probe(Duration.ofHours(1), Duration.ofSeconds(2)));
+        properties.setRedis(new HealthProbeProperties.Probe(Duration.ofMillis(50), Duration.ofMillis(100)));
+        properties.setDiskSpace(new HealthProbeProperties.Probe(Duration.ofHours(1), Duration.ofSeconds(2)));
+        healthMonitor = new HealthMonitor(dataSource, redisConnectionFactory, redisCircuitBreaker, properties,
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisHang.countDown();
+        healthMonitor.shutdown();
+    }
+
+    @Test
+    void snapshotIsUnknownBeforeFirstProbe() {
+        HealthMonitor.Snapshot snapshot = healthMonitor.getSnapshot(HealthMonitor.DATABASE);
+
+        assertThat(snapshot.status()).isEqualTo(HealthMonitor.UNKNOWN);
+        assertThat(snapshot.ageMs()).isEqualTo(-1);
+        assertThat(healthMonitor.getOverallStatus()).isEqualTo(HealthMonitor.UP);
+    }
+
+    @Test
+    void readingSnapshotsDoesNotProbe() throws Exception {
+        healthMonitor.start();
+        HealthMonitor.Snapshot database = awaitSnapshot(HealthMonitor.DATABASE,
+                snapshot -> !HealthMonitor.UNKNOWN.equals(snapshot.status()));
+        assertThat(database.status()).isEqualTo(HealthMonitor.UP);
+        assertThat(database.checkedAt()).isNotNull();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(healthMonitor.getOverallStatus()).isEqualTo(HealthMonitor.UP);
+            assertThat(healthMonitor.getComponents()).containsKeys(
+                    HealthMonitor.DATABASE, HealthMonitor.REDIS, HealthMonitor.DISK_SPACE);
+        }
+        verify(dataSource, times(1)).getConnection();
+    }
+
+    @Test
+    void hungProbeTimesOutAndIsNotResubmitted() throws Exception {
+        healthMonitor.start();
+
+        HealthMonitor.Snapshot redis = awaitSnapshot(HealthMonitor.REDIS,
+                snapshot -> HealthMonitor.DOWN.equals(snapshot.status()));
+        assertThat(redis.error()).contains("100ms");
+        assertThat(redis.latencyMs()).isGreaterThanOrEqualTo(100);
+
+        // 间隔50ms，卡住期间本应触发多次探测，但上一次没结束就不再提交
+        Thread.sleep(500);
+        verify(redisConnectionFactory, times(1)).getConnection();
+        assertThat(healthMonitor.getOverallStatus()).as("Redis不可用不影响整体状态").isEqualTo(HealthMonitor.UP);
+    }
+
+    @Test
+    void databaseFailureMakesOverallStatusDown() throws Exception {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+        healthMonitor.start();
+
+        HealthMonitor.Snapshot database = awaitSnapshot(HealthMonitor.DATABASE,
+                snapshot -> !HealthMonitor.UNKNOWN.equals(snapshot.status()));
+        assertThat(database.status()).isEqualTo(HealthMonitor.DOWN);
+        assertThat(database.error()).contains("Connection refused");
+        assertThat(healthMonitor.getOverallStatus()).isEqualTo(HealthMonitor.DOWN);
+    }
+
+    private HealthMonitor.Snapshot awaitSnapshot(String component, Predicate<HealthMonitor.Snapshot> condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        HealthMonitor.Snapshot snapshot;
+        do {
+            snapshot = healthMonitor.getSnapshot(component);
+            if (condition.test(snapshot)) {
+                return snapshot;
+            }
+            Thread.sleep(10);
+        } while (System.nanoTime() < deadline);
+        assertThat(condition).as("%s 快照: %s", component, snapshot).accepts(snapshot);
+        return snapshot;
+    }
+}
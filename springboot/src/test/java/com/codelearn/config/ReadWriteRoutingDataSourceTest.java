@@ -0,0 +1,181 @@
+package com.codelearn.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 读写分离路由：主库和从库是两个独立的H2内存库，各自的node表记录自己的名字，
+ * 通过查询结果判断语句实际在哪个库上执行
+ * 数据源按DataSourceRoutingConfig的方式组装（LazyConnectionDataSourceProxy + ReadWriteRoutingDataSource）
+ */
+@SpringJUnitConfig(ReadWriteRoutingDataSourceTest.RoutingTestConfig.class)
+class ReadWriteRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1";
+    private static final Duration READ_YOUR_WRITES_WINDOW = Duration.ofMillis(500);
+
+    @Autowired
+    private NodeService nodeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clearClient() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica() {
+        loginAs("reader");
+
+        assertThat(nodeService.readNode()).isEqualTo("replica");
+        assertThat(nodeService.readNode()).isEqualTo("replica");
+    }
+
+    @Test
+    void writeGoesToPrimary() throws SQLException {
+        loginAs("primary_writer");
+
+        assertThat(nodeService.writeNode()).isEqualTo("primary");
+        assertThat(writesOn(PRIMARY_URL)).isPositive();
+        assertThat(writesOn(REPLICA_URL)).isZero();
+    }
+
+    @Test
+    void readAfterWriteStaysOnPrimaryWithinWindow() throws InterruptedException {
+        loginAs("pinned_writer");
+        nodeService.writeNode();
+
+        assertThat(nodeService.readNode()).as("写入后窗口内的只读事务").isEqualTo("primary");
+        assertThat(routingStats().get("pinnedToPrimary")).isNotEqualTo(0L);
+
+        loginAs("other_reader");
+        assertThat(nodeService.readNode()).as("其他客户端不受影响").isEqualTo("replica");
+
+        loginAs("pinned_writer");
+        Thread.sleep(READ_YOUR_WRITES_WINDOW.toMillis() + 200);
+        assertThat(nodeService.readNode()).as("窗口过后").isEqualTo("replica");
+    }
+
+    private static void loginAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private Map<String, Object> routingStats() {
+        LazyConnectionDataSourceProxy proxy = (LazyConnectionDataSourceProxy) jdbcTemplate.getDataSource();
+        return ((ReadWriteRoutingDataSource) proxy.getTargetDataSource()).getStats();
+    }
+
+    private static int writesOn(String url) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT writes FROM node")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    static class NodeService {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        NodeService(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Transactional(readOnly = true)
+        public String readNode() {
+            return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+        }
+
+        @Transactional
+        public String writeNode() {
+            jdbcTemplate.update("UPDATE node SET writes = writes + 1");
+            return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class RoutingTestConfig {
+
+        @Bean
+        HikariDataSource primaryDataSource() throws SQLException {
+            createNode(PRIMARY_URL, "primary");
+            createNode(REPLICA_URL, "replica");
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(PRIMARY_URL);
+            dataSource.setUsername("sa");
+            dataSource.setPoolName("primary");
+            return dataSource;
+        }
+
+        @Bean
+        DataSource dataSource(HikariDataSource primaryDataSource) {
+            DataSourceProperties properties = new DataSourceProperties();
+            properties.setDriverClassName("org.h2.Driver");
+            DataSourceRoutingProperties routingProperties = new DataSourceRoutingProperties();
+            routingProperties.getRouting().setEnabled(true);
+            routingProperties.getRouting().setReadYourWritesWindow(READ_YOUR_WRITES_WINDOW);
+            DataSourceRoutingProperties.Replica replica = new DataSourceRoutingProperties.Replica();
+            replica.setUrl(REPLICA_URL);
+            replica.setUsername("sa");
+            replica.setMaximumPoolSize(2);
+            routingProperties.getReplicas().add(replica);
+            return new DataSourceRoutingConfig().dataSource(primaryDataSource, properties, routingProperties);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        NodeService nodeService(JdbcTemplate jdbcTemplate) {
+            return new NodeService(jdbcTemplate);
+        }
+
+        private static void createNode(String url, String name) throws SQLException {
+            try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20), writes INT)");
+                statement.execute("DELETE FROM node");
+                statement.execute("INSERT INTO node VALUES ('" + name + "', 0)");
+            }
+        }
+    }
+}
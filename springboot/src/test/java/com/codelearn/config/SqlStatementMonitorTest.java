@@ -0,0 +1,148 @@
+package com.codelearn.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * SQL执行监控：同一请求内重复执行的语句（N+1）和慢SQL的检测
+ * 用datasource-proxy包装H2数据源，按DataSourceProxyConfig的方式注册监听器，
+ * 请求的开始和结束直接调用拦截器方法模拟
+ */
+class SqlStatementMonitorTest {
+
+    private static final String HANDLER = "SqlStatementMonitorTest.listItems";
+
+    private SqlStatementMonitor monitor;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getObject()).thenReturn(new SimpleMeterRegistry());
+        monitor = new SqlStatementMonitor(meterRegistry);
+        ReflectionTestUtils.setField(monitor, "slowThreshold", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(monitor, "repeatedThreshold", 3);
+
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sql_monitor;DB_CLOSE_DELAY=-1");
+        h2.setUser("sa");
+        jdbcTemplate = new JdbcTemplate(ProxyDataSourceBuilder.create("dataSource", h2)
+                .listener(monitor)
+                .methodListener(monitor)
+                .proxyResultSet()
+                .build());
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS item (id BIGINT PRIMARY KEY, name VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM item");
+        for (long id = 1; id <= 5; id++) {
+            jdbcTemplate.update("INSERT INTO item VALUES (?, ?)", id, "item" + id);
+        }
+        // H2自定义函数：每次调用暂停指定毫秒（无返回值，结果为NULL），用来构造慢SQL
+        jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS PAUSE FOR 'java.lang.Thread.sleep(long)'");
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void repeatedStatementsInOneRequestAreReportedAsNPlusOne() throws Exception {
+        inRequest(() -> {
+            jdbcTemplate.queryForList("SELECT id FROM item", Long.class);
+            for (long id = 1; id <= 5; id++) {
+                jdbcTemplate.queryForObject("SELECT name FROM item WHERE id = ?", String.class, id);
+            }
+            // IN列表长度不同也是同一形状，但只执行了2次，不到阈值
+            jdbcTemplate.queryForList("SELECT name FROM item WHERE id IN (?, ?)", String.class, 1, 2);
+            jdbcTemplate.queryForList("SELECT name FROM item WHERE id IN (?, ?, ?)", String.class, 1, 2, 3);
+        });
+
+        Map<String, Object> endpoint = endpointStats();
+        assertThat(endpoint).containsEntry("requests", 1L);
+        assertThat(endpoint.get("statementsPerRequestMax")).isEqualTo(8L);
+        assertThat(shapes(endpoint, "repeated")).singleElement().satisfies(repeated -> {
+            assertThat(repeated).containsEntry("sql", "SELECT name FROM item WHERE id = ?");
+            assertThat(repeated).containsEntry("maxPerRequest", 5L);
+        });
+        assertThat(shapes(endpoint, "slow")).isEmpty();
+    }
+
+    @Test
+    void slowStatementIsRecordedWithRowsRead() throws Exception {
+        inRequest(() -> {
+            jdbcTemplate.queryForList("SELECT id FROM item WHERE id <= 3 AND PAUSE(30) IS NULL", Long.class);
+            jdbcTemplate.queryForList("SELECT id FROM item", Long.class);
+        });
+
+        Map<String, Object> endpoint = endpointStats();
+        assertThat(shapes(endpoint, "slow")).singleElement().satisfies(slow -> {
+            assertThat(slow.get("sql").toString()).contains("PAUSE(30)");
+            assertThat((Long) slow.get("maxMs")).isGreaterThanOrEqualTo(50);
+            assertThat(slow).containsEntry("rowsAtMax", 3L);
+        });
+        assertThat(shapes(endpoint, "repeated")).isEmpty();
+    }
+
+    @Test
+    void slowStatementOutsideRequestCountsAsBackground() {
+        jdbcTemplate.update("UPDATE item SET name = 'renamed' WHERE PAUSE(20) IS NULL");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> endpoints = (Map<String, Object>) monitor.getStats().get("endpoints");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> background = (Map<String, Object>) endpoints.get("background");
+        assertThat(shapes(background, "slow")).singleElement()
+                .satisfies(slow -> assertThat(slow).containsEntry("rowsAtMax", 5L));
+    }
+
+    /**
+     * 被测请求的处理方法
+     */
+    void listItems() {
+    }
+
+    private void inRequest(Runnable statements) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/items");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        HandlerMethod handler = new HandlerMethod(this, getClass().getDeclaredMethod("listItems"));
+        monitor.preHandle(request, response, handler);
+        statements.run();
+        monitor.afterCompletion(request, response, handler, null);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> endpointStats() {
+        Map<String, Object> endpoints = (Map<String, Object>) monitor.getStats().get("endpoints");
+        assertThat(endpoints).containsKey(HANDLER);
+        return (Map<String, Object>) endpoints.get(HANDLER);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> shapes(Map<String, Object> endpoint, String kind) {
+        return (List<Map<String, Object>>) endpoint.get(kind);
+    }
+}
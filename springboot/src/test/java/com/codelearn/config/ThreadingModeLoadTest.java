@@ -0,0 +1,152 @@
+package com.codelearn.config;
+
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 请求处理线程模式的负载测试：固定并发数的客户端持续请求按ID查询和分页接口，记录吞吐量、延迟分位数和失败数
+ * （连接池等待超时、连接被关闭等过载失败计入失败数，不中断测试）
+ * 默认不运行；分别以两种模式运行后对比日志中的结果（虚拟线程需要Java 21及以上运行时）：
+ * mvn test -Dtest=ThreadingModeLoadTest -Dbenchmark=true
+ * mvn test -Dtest=ThreadingModeLoadTest -Dbenchmark=true -Dspring.threads.virtual.enabled=true
+ * 并发数和请求数可以调整：-Dbenchmark.concurrency=400 -Dbenchmark.requests=20000
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.com.codelearn=INFO",  // 逐请求的DEBUG日志会成为瓶颈
+        "logging.level.org.springframework.web=INFO"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)  // 独占端口和连接池，测完即关闭
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadingModeLoadTest {
+
+    private static final int WARMUP_REQUESTS = 2_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ThreadingMode threadingMode;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void throughputAndTailLatency() throws Exception {
+        int concurrency = Integer.getInteger("benchmark.concurrency", 400);
+        int requests = Integer.getInteger("benchmark.requests", 20_000);
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        HttpClient httpClient = HttpClient.newBuilder()  // 不能使用clients线程池：其线程都阻塞在send上，响应无法完成
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            String token = login(httpClient);
+            List<URI> targets = new ArrayList<>();
+            for (User user : userRepository.findAll()) {
+                targets.add(URI.create("http://localhost:" + port + "/api/users/" + user.getId()));
+            }
+            targets.add(URI.create("http://localhost:" + port + "/api/users/page?page=0&size=20"));
+
+            run(httpClient, clients, token, targets, Math.min(concurrency, WARMUP_REQUESTS), WARMUP_REQUESTS,
+                    new AtomicInteger());
+            AtomicInteger failures = new AtomicInteger();
+            long start = System.nanoTime();
+            long[] latencies = run(httpClient, clients, token, targets, concurrency, requests, failures);
+            long elapsedNanos = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            log.info("线程模式 {}（Java {}），并发 {}，请求 {}：吞吐量 {}/s，p50 {}ms，p99 {}ms，最大 {}ms，失败 {}",
+                    threadingMode.getName(), Runtime.version().feature(), concurrency, requests,
+                    requests * 1_000_000_000L / elapsedNanos,
+                    percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99),
+                    percentileMillis(latencies, 1.0), failures.get());
+            assertThat(failures.get()).isLessThan(requests);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * concurrency个客户端一起发出requests个请求，返回每个请求的耗时（纳秒），非200的响应和连接错误计入failures
+     */
+    private long[] run(HttpClient httpClient, ExecutorService clients, String token, List<URI> targets,
+                       int concurrency, int requests, AtomicInteger failures) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            workers.add(clients.submit(() -> {
+                start.await();
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    HttpRequest request = HttpRequest.newBuilder(targets.get(i % targets.size()))
+                            .header("Authorization", "Bearer " + token)
+                            .timeout(Duration.ofSeconds(30))
+                            .GET()
+                            .build();
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();  // 过载时服务端关闭连接
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.MINUTES);
+        }
+        return latencies;
+    }
+
+    private String login(HttpClient httpClient) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+                .build();
+        JsonNode body = objectMapper.readTree(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        return body.path("data").path("accessToken").asText();
+    }
+
+    private static long percentileMillis(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sortedNanos[Math.max(0, index)]);
+    }
+}
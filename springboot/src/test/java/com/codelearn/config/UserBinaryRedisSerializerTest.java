@@ -0,0 +1,84 @@
+package com.codelearn.config;
+
+import com.codelearn.entity.User;
+import com.codelearn.service.UserCacheService;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 用户缓存二进制序列化器：损坏的数据统一抛出SerializationException，
+ * 缓存层据此按未命中处理，不会计为Redis故障
+ */
+class UserBinaryRedisSerializerTest {
+
+    private final UserBinaryRedisSerializer serializer =
+            new UserBinaryRedisSerializer(RedisConfig.jsonRedisSerializer());
+
+    @Test
+    void roundTrip() {
+        Object value = new UserCacheService.CacheEntry(List.of(newUser(1), newUser(2)), 1_700_000_000_000L, 5);
+
+        assertThat(serializer.deserialize(serializer.serialize(value))).isEqualTo(value);
+    }
+
+    @Test
+    void unknownRoleIsSerializationError() {
+        byte[] bytes = serializer.serialize(newUser(1));
+        // 同长度替换角色名，模拟其他版本写入了本版本不认识的枚举值
+        replace(bytes, "USER", "ROOT");
+
+        assertThatThrownBy(() -> serializer.deserialize(bytes))
+                .isInstanceOf(SerializationException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void truncatedDataIsSerializationError() {
+        byte[] bytes = serializer.serialize(new UserCacheService.CacheEntry(List.of(newUser(1)), 1L, 2L));
+
+        for (int length = 1; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThatThrownBy(() -> serializer.deserialize(truncated))
+                    .as("截断到%d字节", length)
+                    .isInstanceOf(SerializationException.class);
+        }
+    }
+
+    @Test
+    void corruptLengthIsSerializationError() {
+        byte[] bytes = serializer.serialize(newUser(1));
+        // 用户名内容前一个字节是它的长度前缀，改成ZigZag编码的-1
+        bytes[indexOf(bytes, "user_1".getBytes(StandardCharsets.UTF_8)) - 1] = 0x01;
+
+        assertThatThrownBy(() -> serializer.deserialize(bytes)).isInstanceOf(SerializationException.class);
+    }
+
+    private static void replace(byte[] bytes, String target, String replacement) {
+        byte[] from = target.getBytes(StandardCharsets.UTF_8);
+        byte[] to = replacement.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(to, 0, bytes, indexOf(bytes, from), to.length);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + target.length, target, 0, target.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError("未找到目标字节");
+    }
+
+    private static User newUser(long id) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_000_000);
+        return new User(id, "user_" + id, "user_" + id + "@example.com", "password",
+                1, User.UserRole.USER, 0, now, now);
+    }
+}
@@ -0,0 +1,99 @@
+package com.codelearn.config;
+
+import com.codelearn.entity.User;
+import com.codelearn.service.UserCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 缓存值序列化基准测试：二进制格式与JSON的体积和编解码耗时对比
+ * 项目未引入JMH，这里用预热后多轮取中位数的方式测量，结果只用于相对比较。默认不运行：
+ * mvn test -Dtest=UserRedisSerializerBenchmarkTest -Dbenchmark=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserRedisSerializerBenchmarkTest {
+
+    private static final int LIST_SIZE = 20;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS_PER_ROUND = 20_000;
+
+    private final RedisSerializer<Object> json = RedisConfig.jsonRedisSerializer();
+    private final RedisSerializer<Object> binary = new UserBinaryRedisSerializer(RedisConfig.jsonRedisSerializer());
+
+    /** 累加每次操作的结果，计时结束后检查，防止JIT把结果未被使用的编解码当作死代码消除 */
+    private long sink;
+
+    @Test
+    void singleUser() {
+        compare("单个用户", new UserCacheService.CacheEntry(newUser(1), System.currentTimeMillis(), 3));
+    }
+
+    @Test
+    void userList() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= LIST_SIZE; i++) {
+            users.add(newUser(i));
+        }
+        compare(LIST_SIZE + "个用户的列表", new UserCacheService.CacheEntry(users, System.currentTimeMillis(), 8));
+    }
+
+    private void compare(String label, Object value) {
+        byte[] jsonBytes = json.serialize(value);
+        byte[] binaryBytes = binary.serialize(value);
+        assertThat(binary.deserialize(binaryBytes)).isEqualTo(json.deserialize(jsonBytes)).isEqualTo(value);
+
+        long jsonEncode = medianNanos(() -> json.serialize(value).length);
+        long binaryEncode = medianNanos(() -> binary.serialize(value).length);
+        long jsonDecode = medianNanos(() -> json.deserialize(jsonBytes).hashCode());
+        long binaryDecode = medianNanos(() -> binary.deserialize(binaryBytes).hashCode());
+        assertThat(sink).isNotZero();
+        log.info("{}：大小 JSON {}B / 二进制 {}B，编码 JSON {}ns / 二进制 {}ns，解码 JSON {}ns / 二进制 {}ns",
+                label, jsonBytes.length, binaryBytes.length,
+                jsonEncode, binaryEncode, jsonDecode, binaryDecode);
+    }
+
+    /**
+     * 每次操作的中位耗时（纳秒），operation返回的值累加到sink
+     */
+    private long medianNanos(LongSupplier operation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runRound(operation);
+        }
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            samples[i] = runRound(operation) / OPERATIONS_PER_ROUND;
+        }
+        Arrays.sort(samples);
+        return samples[ROUNDS / 2];
+    }
+
+    private long runRound(LongSupplier operation) {
+        long result = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS_PER_ROUND; i++) {
+            result += operation.getAsLong();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += result;
+        return elapsed;
+    }
+
+    private static User newUser(long id) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        return new User(id, "user_" + id, "user_" + id + "@example.com",
+                "$2a$10$gRp8rdhMna4RkEfU5gQxUeZ2H6s0VfYzYt6m1kq3s1oCwJ1Hq9mYe",
+                1, User.UserRole.USER, 0, now, now);
+    }
+}
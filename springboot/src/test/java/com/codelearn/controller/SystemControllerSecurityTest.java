@@ -0,0 +1,67 @@
+package com.codelearn.controller;
+
+import com.codelearn.config.JwtUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 系统接口的访问控制：运行时内部统计只对管理员开放
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class SystemControllerSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Test
+    void publicSystemInfoNeedsNoLogin() throws Exception {
+        mockMvc.perform(get("/api/system/info")).andExpect(status().isOk());
+    }
+
+    @Test
+    void cacheStatsRequireAdmin() throws Exception {
+        assertAdminOnly("/api/system/admin/cache");
+    }
+
+    @Test
+    void endpointAndSqlMetricsRequireAdmin() throws Exception {
+        assertAdminOnly("/api/system/admin/metrics");
+        mockMvc.perform(get("/api/system/metrics")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void actuatorMetricsRequireAdmin() throws Exception {
+        assertAdminOnly("/actuator/metrics");
+        assertAdminOnly("/actuator/metrics/jvm.memory.used");
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    private void assertAdminOnly(String path) throws Exception {
+        mockMvc.perform(get(path)).andExpect(status().isUnauthorized());
+        mockMvc.perform(get(path).header("Authorization", "Bearer " + token("john_doe")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(path).header("Authorization", "Bearer " + token("admin")))
+                .andExpect(status().isOk());
+    }
+
+    private String token(String username) {
+        UserDetails user = userDetailsService.loadUserByUsername(username);
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+}
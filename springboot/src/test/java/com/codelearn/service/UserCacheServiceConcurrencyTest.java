@@ -0,0 +1,135 @@
+package com.codelearn.service;
+
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 缓存击穿保护的并发测试
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)  // 同一JVM中的上下文共享数据库和二级缓存区域，结束后关闭，避免它处理其他测试的失效通知时清除共享区域
+class UserCacheServiceConcurrencyTest {
+
+    private static final int THREADS = 300;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserCacheService userCacheService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @SpyBean
+    private UserRepository userRepository;
+
+    private List<Long> userIds;
+    private Map<Long, User> users;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.resetRequestAttributes();
+        users = new HashMap<>();
+        for (String username : List.of("admin", "john_doe", "jane_smith")) {
+            User user = userRepository.findByUsername(username).orElseThrow();
+            users.put(user.getId(), user);
+        }
+        userIds = List.copyOf(users.keySet());
+        userIds.forEach(id -> cacheManager.getCache(UserCacheService.USERS_CACHE).evict(id));
+        clearInvocations(userRepository);
+    }
+
+    @Test
+    void concurrentMissesRunOneQueryPerKey() throws Exception {
+        // 模拟慢查询，让所有线程都在加载完成前未命中
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return Optional.ofNullable(users.get(invocation.<Long>getArgument(0)));
+        }).when(userRepository).findById(anyLong());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<User>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                Long id = userIds.get(i % userIds.size());
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return userService.getUserById(id).orElseThrow();
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < THREADS; i++) {
+                assertThat(results.get(i).get(30, TimeUnit.SECONDS).getId()).isEqualTo(userIds.get(i % userIds.size()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Long id : userIds) {
+            verify(userRepository, times(1)).findById(id);
+        }
+    }
+
+    @Test
+    void earlyRefreshReturnsCachedValueWithoutWaitingForLoader() throws Exception {
+        String cacheName = "refresh-test";
+        // 很久以前加载的条目，一定会触发提前刷新
+        cacheManager.getCache(cacheName).put("key", new UserCacheService.CacheEntry("old", 0L, 1L));
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        long startedAt = System.nanoTime();
+        String value = userCacheService.get(cacheName, "key", () -> {
+            loads.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "new";
+        });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        assertThat(value).isEqualTo("old");
+        assertThat(elapsedMillis).isLessThan(5_000);
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10_000;
+        String refreshed;
+        do {
+            Thread.sleep(20);
+            refreshed = userCacheService.get(cacheName, "key", () -> "loaded-again");
+        } while (!"new".equals(refreshed) && System.currentTimeMillis() < deadline);
+        assertThat(refreshed).isEqualTo("new");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.codelearn.service;
+
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * User实体二级缓存和查询结果缓存：重复读取的SQL次数，以及更新后缓存中的实体状态
+ */
+@SpringBootTest
+class UserEntityCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactoryImplementor sessionFactory;
+    private Statistics statistics;
+    private User john;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        statistics = sessionFactory.getStatistics();
+        john = userRepository.findByUsername("john_doe").orElseThrow();
+        entityManagerFactory.getCache().evict(User.class);
+        sessionFactory.getCache().evictQueryRegions();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedFindByIdRunsOneQuery() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(userRepository.findById(john.getId())).isPresent();
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(4);
+    }
+
+    @Test
+    void cachedQueriesRunNoSqlUntilUsersChange() {
+        List<Supplier<Object>> queries = List.of(
+                () -> userRepository.findByUsername("john_doe").orElseThrow(),
+                () -> userRepository.findByRole(User.UserRole.USER),
+                () -> userRepository.findActiveUsers());
+        queries.forEach(Supplier::get);
+
+        statistics.clear();
+        for (int i = 0; i < 3; i++) {
+            queries.forEach(Supplier::get);
+        }
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(9);
+
+        // 写入users表使三个查询的缓存结果全部失效
+        User request = userRepository.findById(john.getId()).orElseThrow();
+        request.setEmail("john.query@example.com");
+        userService.updateUser(request);
+
+        statistics.clear();
+        queries.forEach(Supplier::get);
+        assertThat(statistics.getQueryCacheHitCount()).isZero();
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+
+        request.setEmail(john.getEmail());
+        userService.updateUser(request);
+    }
+
+    @Test
+    void updateWithoutCreatedAtKeepsCachedCreatedAt() {
+        // 与 PUT /api/users/{id} 的请求体一致：不包含创建时间、更新时间和token版本号
+        User request = new User();
+        request.setId(john.getId());
+        request.setUsername(john.getUsername());
+        request.setEmail("john.updated@example.com");
+        request.setPassword(john.getPassword());
+        request.setStatus(john.getStatus());
+        request.setRole(john.getRole());
+        userService.updateUser(request);
+
+        statistics.clear();
+        User cached = userRepository.findById(john.getId()).orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(cached.getEmail()).isEqualTo("john.updated@example.com");
+        assertThat(cached.getCreatedAt()).isEqualTo(john.getCreatedAt());
+        assertThat(cached.getTokenVersion()).isEqualTo(john.getTokenVersion());
+
+        request.setEmail(john.getEmail());
+        userService.updateUser(request);
+    }
+}
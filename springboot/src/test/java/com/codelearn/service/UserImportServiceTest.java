@@ -0,0 +1,67 @@
+package com.codelearn.service;
+
+import com.codelearn.common.UserImportResult;
+import com.codelearn.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JSON批量导入对非对象元素的处理
+ */
+@SpringBootTest
+class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        for (String username : List.of("import_first", "import_last")) {
+            userRepository.findByUsername(username).ifPresent(user -> userService.deleteUser(user.getId()));
+        }
+    }
+
+    @Test
+    void nonObjectElementsAreReportedAndLaterRecordsStillImported() throws Exception {
+        String json = "["
+                + "{\"username\":\"import_first\",\"email\":\"import_first@example.com\",\"password\":\"password123\"},"
+                + "42, null, [1, {\"username\":\"nested\"}],"
+                + "{\"username\":\"import_last\",\"email\":\"import_last@example.com\",\"password\":\"password123\"}"
+                + "]";
+
+        UserImportResult result = userImportService.importJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getTotal()).isEqualTo(5);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(UserImportResult.RowError::getLine).containsExactly(2, 3, 4);
+        assertThat(userRepository.findByUsername("import_last")).isPresent();
+    }
+
+    @Test
+    void unterminatedArrayIsReported() throws Exception {
+        String json = "[{\"username\":\"import_first\",\"email\":\"import_first@example.com\",\"password\":\"password123\"},";
+
+        UserImportResult result = userImportService.importJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting(UserImportResult.RowError::getLine).containsExactly(2);
+    }
+}
@@ -0,0 +1,121 @@
+package com.codelearn.service;
+
+import com.codelearn.common.CursorPage;
+import com.codelearn.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 深度翻页基准测试：OFFSET分页（Page / Slice）与游标分页的对比
+ * 默认不运行，插入的行数可以调整：
+ * mvn test -Dtest=UserPaginationBenchmarkTest -Dbenchmark=true -Dbenchmark.rows=1000000
+ */
+@Slf4j
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)  // 大量测试数据不留给其他测试
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserPaginationBenchmarkTest {
+
+    private static final long FIRST_ID = 10_000_000L;
+    private static final int PAGE_SIZE = 100;
+    private static final int INSERT_BATCH = 5_000;
+    private static final int SAMPLES = 5;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int rows;
+
+    @BeforeAll
+    void insertRows() {
+        rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        long start = System.currentTimeMillis();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String sql = "INSERT INTO users (id, username, email, password, status, role, token_version, created_at, updated_at) "
+                + "VALUES (?, ?, ?, 'benchmark', 1, 'USER', 0, ?, ?)";
+        for (int from = 0; from < rows; from += INSERT_BATCH) {
+            List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+            for (int i = from; i < Math.min(from + INSERT_BATCH, rows); i++) {
+                long id = FIRST_ID + i;
+                batch.add(new Object[]{id, "bench_" + id, "bench_" + id + "@example.com", now, now});
+            }
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+        log.info("插入 {} 行测试数据，耗时: {}ms", rows, System.currentTimeMillis() - start);
+    }
+
+    @Test
+    void deepPageLatency() {
+        long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        int lastPage = (int) ((total - 1) / PAGE_SIZE);
+        Pageable deepPage = PageRequest.of(lastPage, PAGE_SIZE, Sort.by("id").ascending());
+
+        // 游标分页逐页走到最后一页，记录最后几页的耗时（每页只取一次，无法重复测量同一页）
+        String cursor = null;
+        CursorPage<User> page;
+        List<Long> cursorNanos = new ArrayList<>();
+        int pages = 0;
+        do {
+            long start = System.nanoTime();
+            page = userService.getUsersByCursor("id", "asc", cursor, PAGE_SIZE);
+            long elapsed = System.nanoTime() - start;
+            if (++pages > lastPage + 1 - SAMPLES) {
+                cursorNanos.add(elapsed);
+            }
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+        List<Long> cursorIds = page.getContent().stream().map(User::getId).toList();
+
+        Page<User> offsetResult = userService.getUsersWithPagination(deepPage);
+        Slice<User> sliceResult = userService.getUsersSlice(deepPage);
+        assertThat(offsetResult.getContent()).extracting(User::getId).containsExactlyElementsOf(cursorIds);
+        assertThat(sliceResult.getContent()).extracting(User::getId).containsExactlyElementsOf(cursorIds);
+
+        long offsetMedian = median(() -> userService.getUsersWithPagination(deepPage));
+        long sliceMedian = median(() -> userService.getUsersSlice(deepPage));
+        long cursorMedian = median(cursorNanos);
+        log.info("深度翻页（{} 行，第 {} 页，每页 {}）中位耗时: Page(OFFSET+COUNT) {}us, Slice(OFFSET) {}us, 游标 {}us",
+                total, lastPage, PAGE_SIZE, offsetMedian / 1000, sliceMedian / 1000, cursorMedian / 1000);
+    }
+
+    private static long median(Supplier<?> call) {
+        List<Long> samples = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            call.get();
+            samples.add(System.nanoTime() - start);
+        }
+        return median(samples);
+    }
+
+    private static long median(List<Long> samples) {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
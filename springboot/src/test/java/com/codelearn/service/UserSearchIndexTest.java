@@ -0,0 +1,104 @@
+package com.codelearn.service;
+
+import com.codelearn.config.CacheInvalidationMessage;
+import com.codelearn.config.CacheInvalidationPublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 其他实例的用户变更同步到本实例的搜索索引
+ * 用JDBC直接写库并以另一个实例ID发布失效通知，模拟第二个实例上的写操作
+ */
+@SpringBootTest
+class UserSearchIndexTest {
+
+    private static final long OTHER_INSTANCE_USER_ID = 9_000_001L;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String otherInstanceId = UUID.randomUUID().toString();
+    private long sequence;
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", OTHER_INSTANCE_USER_ID);
+        publishFromOtherInstance(String.valueOf(OTHER_INSTANCE_USER_ID));
+        awaitSearch("_writer", List::isEmpty);
+    }
+
+    @Test
+    void writesOnAnotherInstanceBecomeSearchable() throws Exception {
+        assertThat(userSearchIndex.search("remote_writer").orElseThrow()).isEmpty();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, status, role, token_version, "
+                        + "created_at, updated_at) VALUES (?, 'remote_writer', 'remote_writer@example.com', "
+                        + "'password', 1, 'USER', 0, ?, ?)",
+                OTHER_INSTANCE_USER_ID, now, now);
+        publishFromOtherInstance(String.valueOf(OTHER_INSTANCE_USER_ID));
+        awaitSearch("remote_writer", ids -> ids.contains(OTHER_INSTANCE_USER_ID));
+
+        jdbcTemplate.update("UPDATE users SET username = 'renamed_writer', email = 'renamed_writer@example.com' WHERE id = ?", OTHER_INSTANCE_USER_ID);
+        publishFromOtherInstance(String.valueOf(OTHER_INSTANCE_USER_ID));
+        awaitSearch("renamed_writer", ids -> ids.contains(OTHER_INSTANCE_USER_ID));
+        assertThat(userSearchIndex.search("remote_writer").orElseThrow()).isEmpty();
+
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", OTHER_INSTANCE_USER_ID);
+        publishFromOtherInstance(String.valueOf(OTHER_INSTANCE_USER_ID));
+        awaitSearch("renamed_writer", List::isEmpty);
+    }
+
+    @Test
+    void lostNotificationsTriggerFullRebuild() throws Exception {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, status, role, token_version, "
+                        + "created_at, updated_at) VALUES (?, 'missed_writer', 'missed_writer@example.com', "
+                        + "'password', 1, 'USER', 0, ?, ?)",
+                OTHER_INSTANCE_USER_ID, now, now);
+        // 其他实例要求整体清空（如发现序号缺口）时，本实例从数据库重建
+        publishFromOtherInstance(CacheInvalidationPublisher.ALL_KEYS);
+        awaitSearch("missed_writer", ids -> ids.contains(OTHER_INSTANCE_USER_ID));
+    }
+
+    private void publishFromOtherInstance(String key) throws Exception {
+        CacheInvalidationMessage message = new CacheInvalidationMessage(otherInstanceId, ++sequence,
+                System.currentTimeMillis(), List.of(List.of(UserSearchIndex.NAME, key)));
+        redisTemplate.convertAndSend(CacheInvalidationPublisher.CHANNEL, objectMapper.writeValueAsString(message));
+    }
+
+    private void awaitSearch(String keyword, Predicate<List<Long>> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Optional<List<Long>> result;
+        do {
+            result = userSearchIndex.search(keyword);
+            if (result.isPresent() && condition.test(result.get())) {
+                return;
+            }
+            Thread.sleep(20);
+        } while (System.nanoTime() < deadline);
+        assertThat(result).as("搜索 %s", keyword).hasValueSatisfying(ids -> assertThat(condition).accepts(ids));
+    }
+}
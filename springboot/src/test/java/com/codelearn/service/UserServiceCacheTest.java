@@ -0,0 +1,84 @@
+package com.codelearn.service;
+
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 用户读取缓存的集成测试
+ * Redis不可用时缓存降级为只用进程内L1，结论不变；
+ * 测试框架会为每个测试绑定模拟请求，这里解除绑定，避免请求级加载器的记忆掩盖缓存行为
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)  // 同一JVM中的上下文共享数据库和二级缓存区域，结束后关闭，避免它处理其他测试的失效通知时清除共享区域
+class UserServiceCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @SpyBean
+    private UserRepository userRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.resetRequestAttributes();
+        userId = userRepository.findByUsername("john_doe").orElseThrow().getId();
+        userService.updateStatus(userId, 1);
+        cacheManager.getCache(UserCacheService.USERS_CACHE).evict(userId);
+        clearInvocations(userRepository);
+    }
+
+    @Test
+    void secondReadIsServedFromCache() {
+        Optional<User> first = userService.getUserById(userId);
+        Optional<User> second = userService.getUserById(userId);
+
+        assertThat(first).isPresent();
+        assertThat(second).isPresent();
+        assertThat(second.get().getUsername()).isEqualTo("john_doe");
+        verify(userRepository, times(1)).findById(userId);
+        verify(userRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void cachedCopyIsNotSharedBetweenCallers() {
+        userService.getUserById(userId).orElseThrow().setStatus(0);
+
+        assertThat(userService.getUserById(userId).orElseThrow().getStatus()).isEqualTo(1);
+    }
+
+    @Test
+    void updateStatusDoesNotWriteBackStaleCachedFields() {
+        User stale = userService.getUserById(userId).orElseThrow();
+        stale.setEmail("stale@example.com");
+        cacheManager.getCache(UserCacheService.USERS_CACHE).put(userId, stale);
+        String email = userRepository.findById(userId).orElseThrow().getEmail();
+
+        userService.updateStatus(userId, 0);
+
+        User saved = userRepository.findById(userId).orElseThrow();
+        assertThat(saved.getStatus()).isEqualTo(0);
+        assertThat(saved.getEmail()).isEqualTo(email);
+    }
+}
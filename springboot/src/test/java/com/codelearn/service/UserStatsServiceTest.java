@@ -0,0 +1,87 @@
+package com.codelearn.service;
+
+import com.codelearn.entity.User;
+import com.codelearn.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 增量维护的用户统计与数据库计数的对比
+ */
+@SpringBootTest
+class UserStatsServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void countersFollowCreateUpdateDelete() {
+        assertMatchesDatabase();
+
+        User created = userService.createUser(newUser("stats_user", User.UserRole.USER));
+        assertMatchesDatabase();
+
+        User admin = userRepository.findById(created.getId()).orElseThrow();
+        admin.setRole(User.UserRole.ADMIN);
+        userService.updateUser(admin);
+        assertMatchesDatabase();
+
+        userService.updateStatus(created.getId(), 0);
+        assertMatchesDatabase();
+
+        userService.updateStatus(created.getId(), 1);
+        assertMatchesDatabase();
+
+        userService.deleteUser(created.getId());
+        assertMatchesDatabase();
+    }
+
+    @Test
+    void reconcileBeforeDeltaIsAppliedDoesNotCountTwice() {
+        User created = transactionTemplate.execute(status -> {
+            // 先登记的同步先执行：对账发生在提交之后、统计增量应用之前，此时新行已经可见
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userStatsService.reconcile();
+                }
+            });
+            return userService.createUser(newUser("stats_race", User.UserRole.USER));
+        });
+        assertMatchesDatabase();
+
+        userService.deleteUser(created.getId());
+        assertMatchesDatabase();
+    }
+
+    private void assertMatchesDatabase() {
+        UserService.UserStats stats = userStatsService.getStats();
+        assertThat(stats.totalUsers).isEqualTo(userRepository.count());
+        assertThat(stats.activeUsers).isEqualTo(userRepository.countByStatus(1));
+        assertThat(stats.adminUsers).isEqualTo(userRepository.countByRole(User.UserRole.ADMIN));
+    }
+
+    private static User newUser(String username, User.UserRole role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("password123");
+        user.setRole(role);
+        return user;
+    }
+}